@@ -0,0 +1,94 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.codahale.metrics.MetricRegistry;
+import com.yammer.dropwizard.authenticator.tests.InMemoryLdap;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end {@code authenticateAndReturnPermittedGroups} for {@value #USERS} users against an embedded
+ * in-memory directory, through the same authenticator chain the bundle builds ({@code cache=true}) or straight
+ * to LDAP ({@code cache=false}), with and without the connection pool for user binds, over each
+ * {@link LdapClientType}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+    private static final int USERS = 1000;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    @Param({"JNDI", "UNBOUNDID"})
+    public LdapClientType client;
+
+    private InMemoryLdap ldap;
+    private LdapAuthenticator ldapAuthenticator;
+    private Authenticator<BasicCredentials, LdapUser> authenticator;
+    private List<BasicCredentials> credentials;
+
+    @Setup
+    public void setup() throws Exception {
+        ldap = new InMemoryLdap();
+        ldap.start();
+        ldap.addUsers("user", USERS, "users");
+        credentials = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            credentials.add(new BasicCredentials("user" + i, "user" + i + "-secret"));
+        }
+
+        final LdapConfiguration configuration = new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setClient(client)
+                .addRestrictedGroup("users");
+        configuration.getConnectionPool().setEnabled(pooled).setMaxSize(64);
+        configuration.getCredentialCache().setMaximumSize(USERS);
+        final MetricRegistry metrics = new MetricRegistry();
+        ldapAuthenticator = new LdapAuthenticator(configuration, metrics);
+        if (cache) {
+            final CredentialDigester digester = new CredentialDigester();
+            authenticator = new CredentialCachingAuthenticator(metrics,
+                    new CoalescingAuthenticator<>(metrics, new UserResourceAuthenticator(ldapAuthenticator),
+                            Duration.seconds(2), digester::digest),
+                    configuration.getCredentialCache(), digester);
+        } else {
+            authenticator = ldapAuthenticator::authenticateAndReturnPermittedGroups;
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        ldapAuthenticator.close();
+        ldap.stop();
+    }
+
+    @Benchmark
+    public Optional<LdapUser> authenticate() throws Exception {
+        return authenticator.authenticate(credentials.get(ThreadLocalRandom.current().nextInt(USERS)));
+    }
+}
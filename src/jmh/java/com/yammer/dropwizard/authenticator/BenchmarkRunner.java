@@ -0,0 +1,37 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.io.File;
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count with the GC profiler attached, so every report carries
+ * throughput and allocation rate ({@code gc.alloc.rate.norm} is bytes per operation). Results are written to
+ * {@code target/jmh/threads-<n>.json}.
+ * <p>
+ * The first argument is a comma separated list of thread counts; the rest are passed on to JMH, e.g.
+ * {@code 1,8 AuthenticationBenchmark -f 1 -wi 2 -i 3}.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String[] threadCounts = args.length == 0 ? new String[] {"1"} : args[0].split(",");
+        final String[] jmhArgs = args.length <= 1 ? new String[0] : Arrays.copyOfRange(args, 1, args.length);
+        new File("target/jmh").mkdirs();
+        for (String threads : threadCounts) {
+            new Runner(new OptionsBuilder()
+                    .parent(new CommandLineOptions(jmhArgs))
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh/threads-" + threads.trim() + ".json")
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The restricted-group filter {@code filterByGroup} sends, built from its {@link SearchPlan} versus assembled
+ * from scratch for every login as it used to be.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupFilterBenchmark {
+    @Param({"1", "10", "50"})
+    public int restrictedGroups;
+
+    private LdapConfiguration configuration;
+    private SearchPlan plan;
+
+    @Setup
+    public void setup() {
+        configuration = new LdapConfiguration();
+        for (int i = 0; i < restrictedGroups; i++) {
+            configuration.addRestrictedGroup("group-" + i);
+        }
+        plan = new SearchPlans(configuration).membershipExists;
+    }
+
+    @Benchmark
+    public String planned() {
+        return plan.filter("jsmith");
+    }
+
+    @Benchmark
+    public String perLogin() {
+        final Set<String> restrictedToGroups = configuration.getRestrictToGroups();
+        final StringBuilder groupFilter = new StringBuilder();
+        for (String group : restrictedToGroups) {
+            groupFilter.append(String.format("(%s=%s)", configuration.getGroupNameAttribute(), LdapAuthenticator.sanitizeEntity(group)));
+        }
+        return String.format("(&(%s=%s)(|%s))", configuration.getGroupMembershipAttribute(), "jsmith", groupFilter);
+    }
+}
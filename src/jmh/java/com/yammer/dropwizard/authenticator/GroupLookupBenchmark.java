@@ -0,0 +1,63 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LdapAuthenticator#isValidUser(String, String)} against a group of {@code groupSize} members that is
+ * already in the group cache, for a member and for a non-member.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupLookupBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int groupSize;
+
+    private LdapAuthenticator authenticator;
+    private String member;
+
+    @Setup
+    public void setup() {
+        authenticator = new LdapAuthenticator(new LdapConfiguration()
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100")));
+        final Set<String> members = new HashSet<>();
+        for (int i = 0; i < groupSize; i++) {
+            members.add("user" + i);
+        }
+        authenticator.groupCache.put("engineering", members);
+        member = "user" + (groupSize / 2);
+    }
+
+    @TearDown
+    public void teardown() {
+        authenticator.close();
+    }
+
+    @Benchmark
+    public boolean member() {
+        return authenticator.isValidUser(member, "engineering");
+    }
+
+    @Benchmark
+    public boolean nonMember() {
+        return authenticator.isValidUser("nobody", "engineering");
+    }
+}
@@ -0,0 +1,116 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.auth.LdapRolesAllowed;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.SecurityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The request filter {@link LdapRolesAllowedDynamicFeature} installs for {@code @LdapRolesAllowed}, checking a user
+ * with {@code userRoles} roles against a method that allows four roles, the last of which the user has. With
+ * {@code securityContext=ldap} the request carries the {@link LdapSecurityContext} the bundle installs, so the filter
+ * tests the user's role bitset; with {@code securityContext=plain} it carries another authorizer's context, so the
+ * filter asks {@link SecurityContext#isUserInRole(String)} about each allowed role in turn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleCheckBenchmark {
+    @Param({"5", "100"})
+    public int userRoles;
+
+    @Param({"ldap", "plain"})
+    public String securityContext;
+
+    private ContainerRequestFilter filter;
+    private ContainerRequestContext request;
+
+    @LdapRolesAllowed({"role-a", "role-b", "role-c", "role-0"})
+    public void resource() {
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final Method resource = RoleCheckBenchmark.class.getMethod("resource");
+        final ResourceInfo resourceInfo = proxy(ResourceInfo.class, (method, args) ->
+                method.getName().equals("getResourceMethod") ? resource : RoleCheckBenchmark.class);
+        final ContainerRequestFilter[] registered = new ContainerRequestFilter[1];
+        final FeatureContext featureContext = proxy(FeatureContext.class, (method, args) -> {
+            if (method.getName().equals("register") && args[0] instanceof ContainerRequestFilter) {
+                registered[0] = (ContainerRequestFilter) args[0];
+            }
+            return null;
+        });
+        new LdapRolesAllowedDynamicFeature().configure(resourceInfo, featureContext);
+        filter = registered[0];
+
+        final Set<String> roles = new HashSet<>();
+        for (int i = 0; i < userRoles; i++) {
+            roles.add("role-" + i);
+        }
+        final LdapUser user = new LdapUser("jsmith", roles);
+        final SecurityContext authenticated = new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return user;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return user.getRoles().contains(role);
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return BASIC_AUTH;
+            }
+        };
+        final SecurityContext context = securityContext.equals("ldap")
+                ? new LdapSecurityContext(user, authenticated)
+                : authenticated;
+        request = proxy(ContainerRequestContext.class, (method, args) -> context);
+    }
+
+    @Benchmark
+    public ContainerRequestContext rolesAllowed() throws Exception {
+        filter.filter(request);
+        return request;
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(Method method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> answer.answer(method, args)));
+    }
+}
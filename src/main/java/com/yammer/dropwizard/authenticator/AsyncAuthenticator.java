@@ -0,0 +1,38 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import java.security.Principal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Non-blocking counterpart of {@link Authenticator}. Failures complete the future exceptionally with an
+ * {@link AuthenticationException} (or a {@link RejectedExecutionException} when the LDAP executor is saturated).
+ */
+@FunctionalInterface
+public interface AsyncAuthenticator<C, P extends Principal> {
+    CompletableFuture<Optional<P>> authenticateAsync(C credentials);
+
+    /**
+     * Runs a blocking authenticator (for example a caching chain) on {@code executor}.
+     */
+    static <C, P extends Principal> AsyncAuthenticator<C, P> of(Authenticator<C, P> authenticator, Executor executor) {
+        return credentials -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return authenticator.authenticate(credentials);
+                    } catch (AuthenticationException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+
+/**
+ * Authenticates Basic credentials before the request reaches Jersey, without holding a container thread while
+ * LDAP answers: the request is suspended, authenticated on the LDAP executor and then re-dispatched. The outcome is
+ * left in the {@link #RESULT_ATTRIBUTE} request attribute for {@link AsyncBasicCredentialAuthFilter}, which
+ * enforces it.
+ */
+public class AsyncBasicAuthServletFilter implements Filter {
+    public static final String RESULT_ATTRIBUTE = AsyncBasicAuthServletFilter.class.getName() + ".result";
+
+    private final AsyncAuthenticator<BasicCredentials, ?> authenticator;
+    private final Duration timeout;
+    private final String prefix;
+
+    public AsyncBasicAuthServletFilter(AsyncAuthenticator<BasicCredentials, ?> authenticator, Duration timeout) {
+        this(authenticator, timeout, "Basic");
+    }
+
+    public AsyncBasicAuthServletFilter(AsyncAuthenticator<BasicCredentials, ?> authenticator, Duration timeout,
+                                       String prefix) {
+        this.authenticator = checkNotNull(authenticator);
+        this.timeout = checkNotNull(timeout);
+        this.prefix = checkNotNull(prefix);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request.getAttribute(RESULT_ATTRIBUTE) != null || !request.isAsyncSupported()
+                || !(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final BasicCredentials credentials = AsyncBasicCredentialAuthFilter.parseCredentials(
+                ((HttpServletRequest) request).getHeader(HttpHeaders.AUTHORIZATION), prefix);
+        if (credentials == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeout.toMilliseconds());
+        final AtomicBoolean completed = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                complete(asyncContext, completed, new TimeoutException("LDAP authentication timed out after " + timeout));
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        authenticator.authenticateAsync(credentials).whenComplete((principal, error) ->
+                complete(asyncContext, completed, error != null ? error : principal));
+    }
+
+    private static void complete(AsyncContext asyncContext, AtomicBoolean completed, Object result) {
+        if (completed.compareAndSet(false, true)) {
+            asyncContext.getRequest().setAttribute(RESULT_ATTRIBUTE, result == null ? Optional.empty() : result);
+            asyncContext.dispatch();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
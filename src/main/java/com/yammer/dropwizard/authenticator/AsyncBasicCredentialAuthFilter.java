@@ -0,0 +1,109 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.basic.BasicCredentials;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Base64;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import javax.annotation.Priority;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * Basic-auth filter that picks up the outcome of {@link AsyncBasicAuthServletFilter} instead of authenticating
+ * on the request thread. Requests that did not go through the servlet filter (no async support in the servlet
+ * chain) fall back to the blocking authenticator, exactly like {@code BasicCredentialAuthFilter}.
+ */
+@Priority(Priorities.AUTHENTICATION)
+public class AsyncBasicCredentialAuthFilter<P extends Principal> extends AuthFilter<BasicCredentials, P> {
+
+    private AsyncBasicCredentialAuthFilter() {
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        final Object result = requestContext.getProperty(AsyncBasicAuthServletFilter.RESULT_ATTRIBUTE);
+        if (result == null) {
+            final BasicCredentials credentials = parseCredentials(
+                    requestContext.getHeaders().getFirst(HttpHeaders.AUTHORIZATION), prefix);
+            if (!authenticate(requestContext, credentials, SecurityContext.BASIC_AUTH)) {
+                throw unauthorizedHandler.buildException(prefix, realm);
+            }
+            return;
+        }
+        if (result instanceof Throwable) {
+            logger.warn("Error authenticating credentials", (Throwable) result);
+            throw new InternalServerErrorException();
+        }
+        @SuppressWarnings("unchecked")
+        final Optional<P> principal = (Optional<P>) result;
+        if (!principal.isPresent()) {
+            throw unauthorizedHandler.buildException(prefix, realm);
+        }
+        setSecurityContext(requestContext, principal.get());
+    }
+
+    private void setSecurityContext(ContainerRequestContext requestContext, P principal) {
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        final boolean secure = securityContext != null && securityContext.isSecure();
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return authorizer.authorize(principal, role, requestContext);
+            }
+
+            @Override
+            public boolean isSecure() {
+                return secure;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return SecurityContext.BASIC_AUTH;
+            }
+        });
+    }
+
+    /**
+     * Parses a Basic {@code Authorization} header, returning {@code null} when it is absent or malformed.
+     */
+    @Nullable
+    static BasicCredentials parseCredentials(@Nullable String header, String prefix) {
+        if (header == null) {
+            return null;
+        }
+        final int space = header.indexOf(' ');
+        if (space <= 0 || !prefix.equalsIgnoreCase(header.substring(0, space))) {
+            return null;
+        }
+        final String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(space + 1)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        final int colon = decoded.indexOf(':');
+        if (colon <= 0) {
+            return null;
+        }
+        return new BasicCredentials(decoded.substring(0, colon), decoded.substring(colon + 1));
+    }
+
+    public static class Builder<P extends Principal> extends AuthFilterBuilder<BasicCredentials, P, AsyncBasicCredentialAuthFilter<P>> {
+        @Override
+        protected AsyncBasicCredentialAuthFilter<P> newInstance() {
+            return new AsyncBasicCredentialAuthFilter<>();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.yammer.dropwizard.authenticator;
 import java.util.Hashtable;
 import javax.naming.NamingException;
 import javax.naming.directory.InitialDirContext;
+import javax.naming.ldap.LdapContext;
 
 public class AutoclosingDirContext extends InitialDirContext implements AutoCloseable {
 
@@ -18,6 +19,14 @@ public class AutoclosingDirContext extends InitialDirContext implements AutoClos
         super(environment);
     }
 
+    /**
+     * The underlying LDAP provider context, for operations (re-binding, request controls) that
+     * {@link InitialDirContext} does not expose.
+     */
+    protected LdapContext ldapContext() throws NamingException {
+        return (LdapContext) getDefaultInitCtx();
+    }
+
     @Override
     public void close() throws NamingException {
         super.close();
@@ -0,0 +1,102 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class CircuitBreakerConfiguration {
+    private boolean enabled = true;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double failureRateThreshold = 0.5;
+
+    @Min(1)
+    private int minimumCalls = 20;
+
+    @NotNull
+    @Valid
+    private Duration window = Duration.seconds(30);
+
+    @NotNull
+    @Valid
+    private Duration openDuration = Duration.seconds(10);
+
+    @NotNull
+    @Valid
+    private Duration staleGracePeriod = Duration.seconds(0);
+
+    @Min(0)
+    private long staleMaximumSize = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CircuitBreakerConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public CircuitBreakerConfiguration setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public CircuitBreakerConfiguration setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public CircuitBreakerConfiguration setWindow(Duration window) {
+        this.window = window;
+        return this;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public CircuitBreakerConfiguration setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    /**
+     * How long after it would normally have expired a group membership or verified login may still be served
+     * while the directory is unreachable. Zero disables the fallback.
+     */
+    public Duration getStaleGracePeriod() {
+        return staleGracePeriod;
+    }
+
+    public CircuitBreakerConfiguration setStaleGracePeriod(Duration staleGracePeriod) {
+        this.staleGracePeriod = staleGracePeriod;
+        return this;
+    }
+
+    public long getStaleMaximumSize() {
+        return staleMaximumSize;
+    }
+
+    public CircuitBreakerConfiguration setStaleMaximumSize(long staleMaximumSize) {
+        this.staleMaximumSize = staleMaximumSize;
+        return this;
+    }
+}
@@ -0,0 +1,91 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.util.Duration;
+import java.security.Principal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent authentications of the same credentials into a single call to the underlying
+ * authenticator: the first caller performs the LDAP round trip and every caller arriving while it is in flight
+ * waits (up to {@code waitTimeout}) for its result. A caller that gives up waiting, e.g. because the first one is
+ * failing over across several servers, authenticates on its own rather than failing.
+ */
+public class CoalescingAuthenticator<C, P extends Principal> implements Authenticator<C, P> {
+    private final Authenticator<C, P> underlying;
+    private final Function<C, ?> keyFunction;
+    private final Duration waitTimeout;
+    private final ConcurrentMap<Object, CompletableFuture<Optional<P>>> inFlight = new ConcurrentHashMap<>();
+    private final Meter calls;
+    private final Meter coalesced;
+    private final Meter timeouts;
+
+    public CoalescingAuthenticator(MetricRegistry metricRegistry, Authenticator<C, P> underlying, Duration waitTimeout) {
+        this(metricRegistry, underlying, waitTimeout, Function.identity());
+    }
+
+    /**
+     * @param keyFunction maps credentials to the key calls are coalesced on; credentials with equal keys must
+     *                    authenticate identically
+     */
+    public CoalescingAuthenticator(MetricRegistry metricRegistry, Authenticator<C, P> underlying, Duration waitTimeout,
+                                   Function<C, ?> keyFunction) {
+        this.underlying = checkNotNull(underlying);
+        this.waitTimeout = checkNotNull(waitTimeout);
+        this.keyFunction = checkNotNull(keyFunction);
+        this.calls = metricRegistry.meter(name(underlying.getClass(), "coalescing", "calls"));
+        this.coalesced = metricRegistry.meter(name(underlying.getClass(), "coalescing", "coalesced"));
+        this.timeouts = metricRegistry.meter(name(underlying.getClass(), "coalescing", "timeouts"));
+        metricRegistry.gauge(name(underlying.getClass(), "coalescing", "in-flight"), () -> (Gauge<Integer>) inFlight::size);
+    }
+
+    @Override
+    public Optional<P> authenticate(C credentials) throws AuthenticationException {
+        calls.mark();
+        final Object key = keyFunction.apply(credentials);
+        final CompletableFuture<Optional<P>> call = new CompletableFuture<>();
+        final CompletableFuture<Optional<P>> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.mark();
+            return await(existing, credentials);
+        }
+        try {
+            final Optional<P> result = underlying.authenticate(credentials);
+            call.complete(result);
+            return result;
+        } catch (AuthenticationException | RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private Optional<P> await(CompletableFuture<Optional<P>> call, C credentials) throws AuthenticationException {
+        try {
+            return call.get(waitTimeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.mark();
+            return underlying.authenticate(credentials);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Interrupted while waiting for a concurrent authentication", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class CredentialCacheConfiguration {
+    @Min(0)
+    private long maximumSize = 0;
+
+    @NotNull
+    @Valid
+    private Duration positiveTtl = Duration.minutes(1);
+
+    @NotNull
+    @Valid
+    private Duration negativeTtl = Duration.seconds(0);
+
+    @NotNull
+    @Valid
+    private Duration refreshAfter = Duration.seconds(0);
+
+    @Min(1)
+    private int refreshThreads = 2;
+
+    @Min(0)
+    private int refreshQueueSize = 1000;
+
+    /**
+     * Logins cached at most; zero, the default, leaves every login to LDAP so a password changed or disabled in
+     * the directory takes effect immediately.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public CredentialCacheConfiguration setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    public Duration getPositiveTtl() {
+        return positiveTtl;
+    }
+
+    public CredentialCacheConfiguration setPositiveTtl(Duration positiveTtl) {
+        this.positiveTtl = positiveTtl;
+        return this;
+    }
+
+    /**
+     * How long a failed login is cached. Zero by default, since {@link FailedLoginConfiguration failedLogins}
+     * already rejects recently failed credentials; setting both remembers each failure twice, for different times.
+     */
+    public Duration getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public CredentialCacheConfiguration setNegativeTtl(Duration negativeTtl) {
+        this.negativeTtl = negativeTtl;
+        return this;
+    }
+
+    /**
+     * Age after which a cached successful login is still served but re-validated in the background, so hot
+     * users never wait for LDAP when their entry reaches {@link #getPositiveTtl()}. Zero, or anything not below
+     * {@code positiveTtl}, disables refreshing.
+     */
+    public Duration getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    public CredentialCacheConfiguration setRefreshAfter(Duration refreshAfter) {
+        this.refreshAfter = refreshAfter;
+        return this;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public CredentialCacheConfiguration setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+        return this;
+    }
+
+    /**
+     * Re-validations waiting for a refresh thread; beyond this, refreshes are skipped and retried on a later hit.
+     */
+    public int getRefreshQueueSize() {
+        return refreshQueueSize;
+    }
+
+    public CredentialCacheConfiguration setRefreshQueueSize(int refreshQueueSize) {
+        this.refreshQueueSize = refreshQueueSize;
+        return this;
+    }
+}
@@ -0,0 +1,264 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches authentication results keyed by a {@link CredentialDigest} rather than by the credentials, so no
+ * plaintext password is retained on the heap. Successful and failed authentications expire independently
+ * ({@code positiveTtl} and {@code negativeTtl}); a zero {@code negativeTtl} disables caching of failures.
+ * <p>
+ * Lookups never hold a cache lock while LDAP is consulted; put a {@link CoalescingAuthenticator} underneath
+ * to collapse concurrent misses for the same credentials.
+ * <p>
+ * With a non-zero {@code staleGracePeriod}, successful logins that expire are kept for that much longer and
+ * served when the directory cannot be reached (see {@link LdapCircuitBreaker#isOutage(Throwable)}).
+ * <p>
+ * With a non-zero {@code refreshAfter}, a successful login older than that is still served from the cache, and
+ * the credentials of the request that found it are re-checked against LDAP on a separate executor. Only once
+ * {@code positiveTtl} passes without a successful refresh does a request wait for LDAP again.
+ */
+public class CredentialCachingAuthenticator implements Authenticator<BasicCredentials, LdapUser>, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(CredentialCachingAuthenticator.class);
+
+    private final Authenticator<BasicCredentials, LdapUser> underlying;
+    private final CredentialDigester digester;
+    private final boolean cacheFailures;
+    private final Cache<CredentialDigest, Optional<LdapUser>> cache;
+    private final Cache<CredentialDigest, LdapUser> stale;
+    private final Policy.VarExpiration<CredentialDigest, Optional<LdapUser>> expiry;
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final long refreshWhenRemainingNanos;
+    @Nullable
+    private final Executor refreshExecutor;
+    @Nullable
+    private final ExecutorService ownedRefreshExecutor;
+    private final Set<CredentialDigest> refreshing = ConcurrentHashMap.newKeySet();
+    private final Meter refreshes;
+    private final Meter refreshFailures;
+
+    public CredentialCachingAuthenticator(MetricRegistry metricRegistry, Authenticator<BasicCredentials, LdapUser> underlying,
+                                          CredentialCacheConfiguration configuration, CredentialDigester digester) {
+        this(metricRegistry, underlying, configuration, digester, Duration.seconds(0));
+    }
+
+    public CredentialCachingAuthenticator(MetricRegistry metricRegistry, Authenticator<BasicCredentials, LdapUser> underlying,
+                                          CredentialCacheConfiguration configuration, CredentialDigester digester,
+                                          Duration staleGracePeriod) {
+        this(metricRegistry, underlying, configuration, digester, staleGracePeriod, Ticker.systemTicker());
+    }
+
+    public CredentialCachingAuthenticator(MetricRegistry metricRegistry, Authenticator<BasicCredentials, LdapUser> underlying,
+                                          CredentialCacheConfiguration configuration, CredentialDigester digester,
+                                          Ticker ticker) {
+        this(metricRegistry, underlying, configuration, digester, Duration.seconds(0), ticker);
+    }
+
+    public CredentialCachingAuthenticator(MetricRegistry metricRegistry, Authenticator<BasicCredentials, LdapUser> underlying,
+                                          CredentialCacheConfiguration configuration, CredentialDigester digester,
+                                          Duration staleGracePeriod, Ticker ticker) {
+        this(metricRegistry, underlying, configuration, digester, staleGracePeriod, ticker, null);
+    }
+
+    /**
+     * @param refreshExecutor runs background re-validations; when {@code null} and {@code refreshAfter} is set,
+     *                        a pool of {@code refreshThreads} is created and shut down by {@link #close()}
+     */
+    public CredentialCachingAuthenticator(MetricRegistry metricRegistry, Authenticator<BasicCredentials, LdapUser> underlying,
+                                          CredentialCacheConfiguration configuration, CredentialDigester digester,
+                                          Duration staleGracePeriod, Ticker ticker, @Nullable Executor refreshExecutor) {
+        this.underlying = checkNotNull(underlying);
+        this.digester = checkNotNull(digester);
+        final long positiveNanos = configuration.getPositiveTtl().toNanoseconds();
+        final long negativeNanos = configuration.getNegativeTtl().toNanoseconds();
+        final long refreshAfterNanos = configuration.getRefreshAfter().toNanoseconds();
+        this.cacheFailures = negativeNanos > 0;
+        if (refreshAfterNanos > 0 && refreshAfterNanos < positiveNanos) {
+            this.refreshWhenRemainingNanos = positiveNanos - refreshAfterNanos;
+            this.ownedRefreshExecutor = refreshExecutor == null
+                    ? LdapExecutors.create(new LdapExecutorConfiguration()
+                            .setThreads(configuration.getRefreshThreads())
+                            .setQueueSize(configuration.getRefreshQueueSize()), "ldap-credential-refresh")
+                    : null;
+            this.refreshExecutor = refreshExecutor == null ? ownedRefreshExecutor : refreshExecutor;
+        } else {
+            this.refreshWhenRemainingNanos = -1;
+            this.ownedRefreshExecutor = null;
+            this.refreshExecutor = null;
+        }
+        this.refreshes = metricRegistry.meter(name(CredentialCachingAuthenticator.class, "refreshes"));
+        this.refreshFailures = metricRegistry.meter(name(CredentialCachingAuthenticator.class, "refresh-failures"));
+        this.stale = staleGracePeriod.toNanoseconds() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(configuration.getMaximumSize())
+                        .expireAfterWrite(staleGracePeriod.toNanoseconds(), TimeUnit.NANOSECONDS)
+                        .ticker(ticker)
+                        .build()
+                : null;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(configuration.getMaximumSize())
+                .expireAfter(new Expiry<CredentialDigest, Optional<LdapUser>>() {
+                    @Override
+                    public long expireAfterCreate(CredentialDigest key, Optional<LdapUser> value, long currentTime) {
+                        return value.isPresent() ? positiveNanos : negativeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(CredentialDigest key, Optional<LdapUser> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(CredentialDigest key, Optional<LdapUser> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .removalListener((CredentialDigest key, Optional<LdapUser> value, RemovalCause cause) -> {
+                    if (stale != null && cause.wasEvicted() && value != null && value.isPresent()) {
+                        stale.put(key, value.get());
+                    }
+                })
+                .recordStats(() -> statsCounter)
+                .build();
+
+        this.expiry = cache.policy().expireVariably().orElseThrow(IllegalStateException::new);
+
+        LdapMetrics.registerCache(metricRegistry, name(CredentialCachingAuthenticator.class), cache);
+    }
+
+    @Override
+    public Optional<LdapUser> authenticate(BasicCredentials credentials) throws AuthenticationException {
+        final CredentialDigest key = digester.digest(credentials);
+        final Optional<LdapUser> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (refreshExecutor != null && cached.isPresent() && isRefreshDue(key)) {
+                refresh(key, credentials);
+            }
+            return cached;
+        }
+        final Optional<LdapUser> result;
+        final long start = System.nanoTime();
+        try {
+            result = underlying.authenticate(credentials);
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+        } catch (AuthenticationException e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            return staleLogin(key, e);
+        }
+        if (result.isPresent() || cacheFailures) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private boolean isRefreshDue(CredentialDigest key) {
+        final OptionalLong remaining = expiry.getExpiresAfter(key, TimeUnit.NANOSECONDS);
+        return remaining.isPresent() && remaining.getAsLong() <= refreshWhenRemainingNanos;
+    }
+
+    /**
+     * Re-checks {@code credentials} in the background unless a refresh of the same entry is already running. The
+     * entry is only replaced if it is still cached, so an {@link #invalidate(BasicCredentials)} during the refresh
+     * is not undone; a failure to reach LDAP leaves the entry to expire at its hard TTL.
+     */
+    private void refresh(CredentialDigest key, BasicCredentials credentials) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    final Optional<LdapUser> result = underlying.authenticate(credentials);
+                    refreshes.mark();
+                    if (result.isPresent() || cacheFailures) {
+                        cache.asMap().replace(key, result);
+                    } else {
+                        cache.invalidate(key);
+                    }
+                } catch (AuthenticationException | RuntimeException e) {
+                    refreshFailures.mark();
+                    LOG.debug("Could not refresh the cached login of {}", credentials.getUsername(), e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            refreshFailures.mark();
+        }
+    }
+
+    private Optional<LdapUser> staleLogin(CredentialDigest key, AuthenticationException failure) throws AuthenticationException {
+        if (stale == null || !LdapCircuitBreaker.isOutage(failure)) {
+            throw failure;
+        }
+        cache.cleanUp(); // moves just-expired logins into the stale cache
+        final LdapUser user = stale.getIfPresent(key);
+        if (user == null) {
+            throw failure;
+        }
+        LOG.warn("LDAP is unreachable; accepting the previously verified login of {}", user.getName());
+        return Optional.of(user);
+    }
+
+    public void invalidate(BasicCredentials credentials) {
+        final CredentialDigest key = digester.digest(credentials);
+        cache.invalidate(key);
+        if (stale != null) {
+            stale.invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        if (stale != null) {
+            stale.invalidateAll();
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void close() {
+        if (ownedRefreshExecutor != null) {
+            ownedRefreshExecutor.shutdownNow();
+        }
+    }
+}
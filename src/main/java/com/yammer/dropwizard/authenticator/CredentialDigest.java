@@ -0,0 +1,38 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.Arrays;
+
+/**
+ * An opaque, keyed digest of a username/password pair, safe to keep in long-lived caches in place of the
+ * credentials themselves.
+ */
+public final class CredentialDigest {
+    private final byte[] value;
+    private final int hashCode;
+
+    CredentialDigest(byte[] value) {
+        this.value = value;
+        this.hashCode = Arrays.hashCode(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CredentialDigest)) {
+            return false;
+        }
+        return Arrays.equals(value, ((CredentialDigest) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "CredentialDigest{...}";
+    }
+}
@@ -0,0 +1,53 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.auth.basic.BasicCredentials;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Turns credentials into {@link CredentialDigest}s with HMAC-SHA256 under a random key generated per instance,
+ * so digests can neither be reversed nor precomputed and mean nothing outside this process.
+ */
+public class CredentialDigester {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    public CredentialDigester() {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public CredentialDigest digest(BasicCredentials credentials) {
+        return digest(credentials.getUsername(), credentials.getPassword());
+    }
+
+    public CredentialDigest digest(String username, String password) {
+        final Mac mac = this.mac.get();
+        final byte[] user = username.getBytes(StandardCharsets.UTF_8);
+        // length-prefix the username so ("ab", "c") and ("a", "bc") cannot collide
+        mac.update((byte) (user.length >>> 24));
+        mac.update((byte) (user.length >>> 16));
+        mac.update((byte) (user.length >>> 8));
+        mac.update((byte) user.length);
+        mac.update(user);
+        mac.update(password.getBytes(StandardCharsets.UTF_8));
+        return new CredentialDigest(mac.doFinal());
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
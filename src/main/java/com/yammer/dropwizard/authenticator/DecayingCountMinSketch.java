@@ -0,0 +1,96 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A fixed-size, thread-safe count-min sketch whose counters are halved once per {@code halfLife}, so counts
+ * reflect recent activity and memory stays constant no matter how many distinct keys are seen. Estimates never
+ * under-count; collisions can only make them larger. Each row hashes the key with its own murmur3 seed, drawn at
+ * random per instance, so nobody can pick a key that shares every counter with someone else's.
+ */
+class DecayingCountMinSketch {
+    private static final int DEPTH = 4;
+
+    private final HashFunction[] rows = new HashFunction[DEPTH];
+    private final AtomicIntegerArray counters;
+    private final int mask;
+    private final long halfLifeNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicLong lastDecay;
+
+    DecayingCountMinSketch(int width, long halfLifeNanos, LongSupplier nanoTime) {
+        checkArgument(width > 0 && Integer.bitCount(width) == 1, "width must be a power of two: %s", width);
+        final SecureRandom random = new SecureRandom();
+        for (int row = 0; row < DEPTH; row++) {
+            rows[row] = Hashing.murmur3_32_fixed(random.nextInt());
+        }
+        this.counters = new AtomicIntegerArray(width * DEPTH);
+        this.mask = width - 1;
+        this.halfLifeNanos = halfLifeNanos;
+        this.nanoTime = nanoTime;
+        this.lastDecay = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    int increment(String key) {
+        decayIfDue();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final int count = counters.incrementAndGet(index(row, key));
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    int estimate(String key) {
+        decayIfDue();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Forgets {@code key}'s count. Its estimate is taken out of every counter it hashes to, so keys sharing one of
+     * them may lose up to that much of their own count; they are never left below zero.
+     */
+    void clear(String key) {
+        final int estimate = estimate(key);
+        if (estimate == 0) {
+            return;
+        }
+        for (int row = 0; row < DEPTH; row++) {
+            counters.getAndUpdate(index(row, key), count -> Math.max(0, count - estimate));
+        }
+    }
+
+    private int index(int row, String key) {
+        return row * (mask + 1) + (rows[row].hashString(key, StandardCharsets.UTF_8).asInt() & mask);
+    }
+
+    private void decayIfDue() {
+        final long now = nanoTime.getAsLong();
+        final long last = lastDecay.get();
+        final long elapsed = now - last;
+        if (elapsed < halfLifeNanos) {
+            return;
+        }
+        // whole half-lives only, so the part of the current one already elapsed still counts towards the next
+        final long periods = elapsed / halfLifeNanos;
+        if (!lastDecay.compareAndSet(last, last + periods * halfLifeNanos)) {
+            return;
+        }
+        final long halvings = Math.min(31, periods);
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> halvings);
+        }
+    }
+}
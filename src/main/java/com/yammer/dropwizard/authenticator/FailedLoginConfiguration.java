@@ -0,0 +1,77 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class FailedLoginConfiguration {
+    @NotNull
+    @Valid
+    private Duration negativeCacheTtl = Duration.seconds(30);
+
+    @Min(0)
+    private long negativeCacheSize = 10000;
+
+    @Min(0)
+    private int maxFailuresPerUser = 0;
+
+    @NotNull
+    @Valid
+    private Duration failureWindow = Duration.minutes(5);
+
+    @Min(64)
+    private int sketchWidth = 4096;
+
+    public Duration getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    public FailedLoginConfiguration setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+        return this;
+    }
+
+    public long getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    public FailedLoginConfiguration setNegativeCacheSize(long negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+        return this;
+    }
+
+    /**
+     * Failed binds after which a username is rejected locally until its count decays, zero to never reject.
+     * The lockout applies to the correct password as well, so it trades password guessing for denial of
+     * service: anyone who knows a username can lock its owner out by failing on purpose. Only a successful
+     * bind before the limit is reached clears the count.
+     */
+    public int getMaxFailuresPerUser() {
+        return maxFailuresPerUser;
+    }
+
+    public FailedLoginConfiguration setMaxFailuresPerUser(int maxFailuresPerUser) {
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        return this;
+    }
+
+    public Duration getFailureWindow() {
+        return failureWindow;
+    }
+
+    public FailedLoginConfiguration setFailureWindow(Duration failureWindow) {
+        this.failureWindow = failureWindow;
+        return this;
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
+    public FailedLoginConfiguration setSketchWidth(int sketchWidth) {
+        this.sketchWidth = sketchWidth;
+        return this;
+    }
+}
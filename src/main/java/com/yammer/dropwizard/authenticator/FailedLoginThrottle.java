@@ -0,0 +1,67 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects logins locally, without an LDAP round trip, when the exact credentials failed to bind recently
+ * (a bounded negative cache of {@link CredentialDigest}s) or when the username has failed more than
+ * {@code maxFailuresPerUser} times within roughly one {@code failureWindow} (a {@link DecayingCountMinSketch}).
+ * A successful bind clears the username's count. The per-user limit rejects the right password too, so anyone who
+ * knows a username can keep its owner locked out by failing on purpose; see
+ * {@link FailedLoginConfiguration#getMaxFailuresPerUser()}.
+ */
+public class FailedLoginThrottle {
+    private final CredentialDigester digester;
+    private final Cache<CredentialDigest, Boolean> failedCredentials;
+    private final DecayingCountMinSketch failuresPerUser;
+    private final int maxFailuresPerUser;
+
+    public FailedLoginThrottle(FailedLoginConfiguration configuration, CredentialDigester digester) {
+        this(configuration, digester, Ticker.systemTicker());
+    }
+
+    public FailedLoginThrottle(FailedLoginConfiguration configuration, CredentialDigester digester, Ticker ticker) {
+        this.digester = checkNotNull(digester);
+        final long negativeTtl = configuration.getNegativeCacheTtl().toNanoseconds();
+        this.failedCredentials = negativeTtl > 0 && configuration.getNegativeCacheSize() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(configuration.getNegativeCacheSize())
+                        .expireAfterWrite(negativeTtl, TimeUnit.NANOSECONDS)
+                        .ticker(ticker)
+                        .build()
+                : null;
+        this.maxFailuresPerUser = configuration.getMaxFailuresPerUser();
+        this.failuresPerUser = maxFailuresPerUser > 0
+                ? new DecayingCountMinSketch(Integer.highestOneBit(configuration.getSketchWidth()),
+                        configuration.getFailureWindow().toNanoseconds(), ticker::read)
+                : null;
+    }
+
+    public boolean isRejected(String username, String password) {
+        if (failuresPerUser != null && failuresPerUser.estimate(username) >= maxFailuresPerUser) {
+            return true;
+        }
+        return failedCredentials != null
+                && failedCredentials.getIfPresent(digester.digest(username, password)) != null;
+    }
+
+    public void recordSuccess(String username) {
+        if (failuresPerUser != null) {
+            failuresPerUser.clear(username);
+        }
+    }
+
+    public void recordFailure(String username, String password) {
+        if (failuresPerUser != null) {
+            failuresPerUser.increment(username);
+        }
+        if (failedCredentials != null) {
+            failedCredentials.put(digester.digest(username, password), Boolean.TRUE);
+        }
+    }
+}
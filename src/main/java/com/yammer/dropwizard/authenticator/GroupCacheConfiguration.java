@@ -0,0 +1,54 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.dropwizard.util.DataSize;
+import io.dropwizard.validation.ValidationMethod;
+import javax.validation.constraints.Min;
+
+/**
+ * Bounds the group cache by what its entries hold rather than by how many there are. When either limit is set,
+ * it replaces any {@code maximumSize} in {@link LdapConfiguration#getCachePolicy()}; the rest of that spec still
+ * applies.
+ */
+@SuppressWarnings("unused")
+public class GroupCacheConfiguration {
+    @Min(0)
+    private long maximumMembers = 0;
+
+    private DataSize maximumMemory = null;
+
+    /**
+     * Total number of members across all cached groups; {@code 0} for no limit.
+     */
+    public long getMaximumMembers() {
+        return maximumMembers;
+    }
+
+    public GroupCacheConfiguration setMaximumMembers(long maximumMembers) {
+        this.maximumMembers = maximumMembers;
+        return this;
+    }
+
+    /**
+     * Estimated heap retained by all cached groups, or {@code null} for no limit.
+     */
+    public DataSize getMaximumMemory() {
+        return maximumMemory;
+    }
+
+    public GroupCacheConfiguration setMaximumMemory(DataSize maximumMemory) {
+        this.maximumMemory = maximumMemory;
+        return this;
+    }
+
+    @JsonIgnore
+    public boolean isWeighted() {
+        return maximumMembers > 0 || maximumMemory != null;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "only one of maximumMembers and maximumMemory can be set")
+    public boolean isSingleLimit() {
+        return maximumMembers == 0 || maximumMemory == null;
+    }
+}
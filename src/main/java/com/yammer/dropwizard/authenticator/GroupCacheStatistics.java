@@ -0,0 +1,133 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-group access and load counts for the group cache, and estimates of the heap its entries retain. Caffeine
+ * only keeps totals across the whole cache, which say nothing about which groups are worth their memory.
+ */
+public class GroupCacheStatistics {
+    // 64-bit JVM with compressed oops
+    private static final long CACHE_ENTRY_BYTES = 64;
+    private static final long HASH_SET_BYTES = 16 + 48;
+    private static final long HASH_NODE_BYTES = 32;
+    private static final long STRING_BYTES = 24;
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private static final class Counters {
+        final LongAdder accesses = new LongAdder();
+        final LongAdder loads = new LongAdder();
+        volatile long lastLoadNanos;
+    }
+
+    public static final class GroupStats {
+        private final String group;
+        private final int members;
+        private final long estimatedBytes;
+        private final long hits;
+        private final long loads;
+        private final long lastLoadNanos;
+
+        GroupStats(String group, int members, long estimatedBytes, long hits, long loads, long lastLoadNanos) {
+            this.group = group;
+            this.members = members;
+            this.estimatedBytes = estimatedBytes;
+            this.hits = hits;
+            this.loads = loads;
+            this.lastLoadNanos = lastLoadNanos;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public int getMembers() {
+            return members;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getLoads() {
+            return loads;
+        }
+
+        /**
+         * How long the most recent load from LDAP took, or {@code 0} if the entry was never loaded (e.g. it was
+         * filled by group sync).
+         */
+        public long getLastLoadNanos() {
+            return lastLoadNanos;
+        }
+    }
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Rough heap retained by a cached group: the cache entry, the group name, and a hash set of member strings.
+     */
+    public static long estimateBytes(String group, Set<String> members) {
+        long bytes = CACHE_ENTRY_BYTES + stringBytes(group) + HASH_SET_BYTES;
+        if (!members.isEmpty()) {
+            final int slots = Math.max(16, Integer.highestOneBit((int) (members.size() / 0.75f) * 2 - 1));
+            bytes += align(ARRAY_HEADER_BYTES + 4L * slots);
+        }
+        for (String member : members) {
+            bytes += HASH_NODE_BYTES + stringBytes(member);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return STRING_BYTES + align(ARRAY_HEADER_BYTES + value.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    void recordAccess(String group) {
+        counters.computeIfAbsent(group, ignored -> new Counters()).accesses.increment();
+    }
+
+    void recordLoad(String group, long nanos) {
+        final Counters groupCounters = counters.computeIfAbsent(group, ignored -> new Counters());
+        groupCounters.loads.increment();
+        groupCounters.lastLoadNanos = nanos;
+    }
+
+    void remove(String group) {
+        counters.remove(group);
+    }
+
+    /**
+     * Statistics of every group in {@code cache}, largest first.
+     */
+    public List<GroupStats> report(Cache<String, Set<String>> cache) {
+        cache.cleanUp();
+        final List<GroupStats> report = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : cache.asMap().entrySet()) {
+            final Counters groupCounters = counters.get(entry.getKey());
+            final long accesses = groupCounters == null ? 0 : groupCounters.accesses.sum();
+            final long loads = groupCounters == null ? 0 : groupCounters.loads.sum();
+            report.add(new GroupStats(entry.getKey(), entry.getValue().size(),
+                    estimateBytes(entry.getKey(), entry.getValue()), Math.max(0, accesses - loads), loads,
+                    groupCounters == null ? 0 : groupCounters.lastLoadNanos));
+        }
+        report.sort(Comparator.comparingLong(GroupStats::getEstimatedBytes).reversed());
+        return report;
+    }
+}
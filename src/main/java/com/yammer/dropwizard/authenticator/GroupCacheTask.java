@@ -0,0 +1,59 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.dropwizard.servlets.tasks.Task;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin task ({@code POST /tasks/ldap-group-cache}) listing the cached groups, largest first, with their member
+ * count, estimated retained memory, hits, loads and last load time. Pass {@code limit} to only list the largest
+ * groups; anything but a non-negative whole number gets a usage message instead of the listing.
+ */
+public class GroupCacheTask extends Task {
+    private final LdapAuthenticator authenticator;
+
+    public GroupCacheTask(LdapAuthenticator authenticator) {
+        super("ldap-group-cache");
+        this.authenticator = checkNotNull(authenticator);
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        final List<String> limitParameter = parameters.get("limit");
+        final Integer limit = limitParameter == null || limitParameter.isEmpty()
+                ? Integer.valueOf(Integer.MAX_VALUE) : parseLimit(limitParameter.get(0));
+        if (limit == null) {
+            output.printf("Invalid limit '%s'%n", limitParameter.get(0));
+            output.println("Usage: POST /tasks/ldap-group-cache[?limit=<number of groups to list, 0 or more>]");
+            output.flush();
+            return;
+        }
+        final List<GroupCacheStatistics.GroupStats> groups = authenticator.getGroupCacheStatistics();
+        long members = 0;
+        long bytes = 0;
+        for (GroupCacheStatistics.GroupStats group : groups) {
+            members += group.getMembers();
+            bytes += group.getEstimatedBytes();
+        }
+        output.printf("%d groups, %d members, ~%d bytes%n", groups.size(), members, bytes);
+        output.println("group\tmembers\testimatedBytes\thits\tloads\tlastLoadMillis");
+        for (GroupCacheStatistics.GroupStats group : groups.subList(0, Math.min(limit, groups.size()))) {
+            output.printf("%s\t%d\t%d\t%d\t%d\t%.1f%n", group.getGroup(), group.getMembers(), group.getEstimatedBytes(),
+                    group.getHits(), group.getLoads(), group.getLastLoadNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        output.flush();
+    }
+
+    private static Integer parseLimit(String limit) {
+        try {
+            final int parsed = Integer.parseInt(limit.trim());
+            return parsed < 0 ? null : parsed;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.naming.NamingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the group cache current by polling for group entries whose modification timestamp moved past the
+ * highest one seen so far, and applying only those entries to the cached membership sets. Unchanged groups are
+ * re-confirmed in place, so they never expire and get re-read in full while syncing works.
+ * <p>
+ * When the server does not return the timestamp attribute, every run falls back to a full reload of the cached
+ * groups; a full reload also runs every {@code fullResyncInterval} to pick up deleted groups.
+ */
+public class GroupChangeSync implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupChangeSync.class);
+
+    public static final class GroupEntry {
+        private final Set<String> members;
+        @Nullable
+        private final String modifyTimestamp;
+
+        public GroupEntry(Set<String> members, @Nullable String modifyTimestamp) {
+            this.members = members;
+            this.modifyTimestamp = modifyTimestamp;
+        }
+
+        public Set<String> getMembers() {
+            return members;
+        }
+
+        @Nullable
+        public String getModifyTimestamp() {
+            return modifyTimestamp;
+        }
+    }
+
+    /**
+     * Reads the given groups, restricted to those modified at or after {@code changedSince} when it is not null.
+     * A group missing from a full read ({@code changedSince} null) is taken to be deleted, so each must be
+     * searched for by its exact name; names are matched ignoring case, as the directory matches them.
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        Map<String, GroupEntry> fetch(Set<String> groups, @Nullable String changedSince) throws NamingException;
+    }
+
+    private final Cache<String, Set<String>> cache;
+    private final Fetcher fetcher;
+    private final long fullResyncNanos;
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private String highWaterMark;
+    private boolean deltasSupported = true;
+    private long lastFullSyncNanos;
+
+    public GroupChangeSync(GroupSyncConfiguration configuration, Cache<String, Set<String>> cache, Fetcher fetcher) {
+        this.cache = checkNotNull(cache);
+        this.fetcher = checkNotNull(fetcher);
+        this.fullResyncNanos = configuration.getFullResyncInterval().toNanoseconds();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(LdapExecutors.daemonThreadFactory("ldap-group-sync"));
+        final long interval = configuration.getInterval().toMilliseconds();
+        scheduler.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void sync() {
+        final Set<String> groups = ImmutableSet.copyOf(cache.asMap().keySet());
+        if (groups.isEmpty()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final boolean full = highWaterMark == null || !deltasSupported || now - lastFullSyncNanos > fullResyncNanos;
+        final Map<String, GroupEntry> changed = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try {
+            changed.putAll(fetcher.fetch(groups, full ? null : highWaterMark));
+        } catch (NamingException | RuntimeException e) {
+            LOG.warn("Unable to sync group changes, cached groups will expire normally: {}", e.getMessage());
+            return;
+        }
+
+        int added = 0;
+        int removed = 0;
+        for (String group : groups) {
+            final Set<String> cached = cache.getIfPresent(group);
+            if (cached == null) {
+                continue; // evicted since the sync started
+            }
+            final GroupEntry entry = changed.get(group);
+            if (entry == null && !full) {
+                cache.asMap().replace(group, cached, cached); // unchanged: re-confirm without re-reading it
+                continue;
+            }
+            final Set<String> members = entry == null ? Collections.emptySet() : entry.getMembers();
+            if (cached.equals(members)) {
+                cache.asMap().replace(group, cached, cached);
+            } else if (cache.asMap().replace(group, cached, members)) {
+                added += Sets.difference(members, cached).size();
+                removed += Sets.difference(cached, members).size();
+            }
+        }
+        for (GroupEntry entry : changed.values()) {
+            final String timestamp = entry.getModifyTimestamp();
+            if (timestamp != null && (highWaterMark == null || timestamp.compareTo(highWaterMark) > 0)) {
+                highWaterMark = timestamp;
+            }
+        }
+        if (full) {
+            lastFullSyncNanos = now;
+            deltasSupported = changed.isEmpty() || changed.values().stream().allMatch(entry -> entry.getModifyTimestamp() != null);
+            if (!deltasSupported) {
+                LOG.info("LDAP server does not return group modification timestamps; group sync will reload in full");
+            }
+        }
+        LOG.debug("Group sync ({}): {} of {} cached groups returned, {} members added, {} removed",
+                full ? "full" : "delta", changed.size(), groups.size(), added, removed);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,198 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves nested groups: a member value holding another group's DN, or optionally its bare name, makes that group
+ * a subgroup.
+ * The transitive users of every group are computed in one pass over the strongly connected components of the
+ * group &rarr; subgroup graph, so groups that contain each other share one member set instead of recursing
+ * forever.
+ */
+final class GroupGraph {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupGraph.class);
+
+    static final class Group {
+        private final String name;
+        @Nullable
+        private final String dn;
+        private final Set<String> members;
+
+        Group(String name, @Nullable String dn, Set<String> members) {
+            this.name = name;
+            this.dn = dn;
+            this.members = members;
+        }
+    }
+
+    private GroupGraph() {
+    }
+
+    /**
+     * The users each group contains directly or through its subgroups. Member values that are DNs of something
+     * other than a group are reduced to their {@code userNameAttribute} value. Values that are not DNs are users
+     * unless {@code subgroupsByName} is set and a group has that name.
+     */
+    static Map<String, Set<String>> transitiveMembers(Collection<Group> groups, String userNameAttribute,
+                                                      boolean subgroupsByName) {
+        final List<Group> nodes = new ArrayList<>(groups);
+        final Map<String, Integer> byName = new HashMap<>();
+        final Map<LdapName, Integer> byDn = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            byName.put(nodes.get(i).name, i);
+            final LdapName dn = parse(nodes.get(i).dn);
+            if (dn != null) {
+                byDn.put(dn, i);
+            }
+        }
+
+        final int[][] subgroups = new int[nodes.size()][];
+        final List<Set<String>> users = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            final Set<Integer> children = new LinkedHashSet<>();
+            final Set<String> direct = new LinkedHashSet<>();
+            for (String member : nodes.get(i).members) {
+                final LdapName dn = member.indexOf('=') < 0 ? null : parse(member);
+                final Integer child = dn != null ? byDn.get(dn) : subgroupsByName ? byName.get(member) : null;
+                if (child != null) {
+                    children.add(child);
+                } else {
+                    direct.add(dn == null ? member : userName(dn, userNameAttribute, member));
+                }
+            }
+            subgroups[i] = children.stream().mapToInt(Integer::intValue).toArray();
+            users.add(direct);
+        }
+
+        final List<Set<String>> closures = closures(subgroups, users, nodes);
+        final Map<String, Set<String>> membersByGroup = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            membersByGroup.put(nodes.get(i).name, closures.get(i));
+        }
+        return membersByGroup;
+    }
+
+    /**
+     * Tarjan's algorithm, iterative so deep nesting cannot overflow the stack. Components are completed in reverse
+     * topological order, so every subgroup outside a component already has its closure when the component's is
+     * built.
+     */
+    private static List<Set<String>> closures(int[][] subgroups, List<Set<String>> users, List<Group> nodes) {
+        final int n = subgroups.length;
+        final int[] index = new int[n];
+        final int[] low = new int[n];
+        final int[] component = new int[n];
+        final int[] nextEdge = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] stack = new int[n];
+        final int[] calls = new int[n];
+        final List<Set<String>> componentMembers = new ArrayList<>();
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int top = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            calls[depth++] = root;
+            index[root] = low[root] = counter++;
+            stack[top++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                final int v = calls[depth - 1];
+                if (nextEdge[v] < subgroups[v].length) {
+                    final int w = subgroups[v][nextEdge[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        calls[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    final int parent = calls[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] != index[v]) {
+                    continue;
+                }
+                final int id = componentMembers.size();
+                final List<Integer> members = new ArrayList<>();
+                int w;
+                do {
+                    w = stack[--top];
+                    onStack[w] = false;
+                    component[w] = id;
+                    members.add(w);
+                } while (w != v);
+
+                final ImmutableSet.Builder<String> closure = ImmutableSet.builder();
+                boolean cycle = members.size() > 1;
+                for (int member : members) {
+                    closure.addAll(users.get(member));
+                    for (int child : subgroups[member]) {
+                        if (child == member) {
+                            cycle = true;
+                        } else if (component[child] != id) {
+                            closure.addAll(componentMembers.get(component[child]));
+                        }
+                    }
+                }
+                componentMembers.add(closure.build());
+                if (cycle) {
+                    final List<String> names = new ArrayList<>();
+                    for (int member : members) {
+                        names.add(nodes.get(member).name);
+                    }
+                    LOG.warn("Nested groups {} contain each other; treating them as one group", names);
+                }
+            }
+        }
+
+        final List<Set<String>> closures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            closures.add(componentMembers.get(component[i]));
+        }
+        return closures;
+    }
+
+    private static String userName(LdapName dn, String userNameAttribute, String member) {
+        if (dn.isEmpty()) {
+            return member;
+        }
+        final Rdn leaf = dn.getRdn(dn.size() - 1);
+        return leaf.getType().equalsIgnoreCase(userNameAttribute) ? String.valueOf(leaf.getValue()) : member;
+    }
+
+    @Nullable
+    private static LdapName parse(@Nullable String dn) {
+        if (dn == null) {
+            return null;
+        }
+        try {
+            return new LdapName(dn);
+        } catch (InvalidNameException e) {
+            return null;
+        }
+    }
+}
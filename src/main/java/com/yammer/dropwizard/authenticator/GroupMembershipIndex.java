@@ -0,0 +1,105 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.dropwizard.util.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.naming.NamingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory user &rarr; groups index of every restricted group, reloaded in the background and swapped in
+ * atomically, so authorization needs no LDAP search. Lookups return {@link Optional#empty()} when no snapshot
+ * younger than {@code maxStaleness} is available; callers then fall back to searching LDAP. User names are
+ * matched ignoring case, as the directory matches {@code memberUid}.
+ */
+public class GroupMembershipIndex implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupMembershipIndex.class);
+
+    /**
+     * Loads the members of every indexed group, keyed by group name.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Map<String, Set<String>> load() throws NamingException;
+    }
+
+    private final Loader loader;
+    private final long maxStalenessNanos;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+
+    public GroupMembershipIndex(GroupSnapshotConfiguration configuration, Loader loader) {
+        this(configuration.getRefreshInterval(), configuration.getMaxStaleness(), loader);
+    }
+
+    public GroupMembershipIndex(NestedGroupConfiguration configuration, Loader loader) {
+        this(configuration.getRefreshInterval(), configuration.getMaxStaleness(), loader);
+    }
+
+    private GroupMembershipIndex(Duration refreshInterval, Duration maxStaleness, Loader loader) {
+        this.loader = checkNotNull(loader);
+        this.maxStalenessNanos = maxStaleness.toNanoseconds();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(LdapExecutors.daemonThreadFactory("ldap-group-snapshot"));
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The indexed groups {@code userName} belongs to, or empty when the snapshot is missing or too stale to use.
+     */
+    public Optional<Set<String>> groupsOf(String userName) {
+        final Snapshot current = snapshot.get();
+        if (current == null || System.nanoTime() - current.loadedAtNanos > maxStalenessNanos) {
+            return Optional.empty();
+        }
+        return Optional.of(current.groupsByUser.getOrDefault(key(userName), ImmutableSet.of()));
+    }
+
+    public void refresh() {
+        try {
+            final Map<String, Set<String>> membersByGroup = loader.load();
+            final Map<String, ImmutableSet.Builder<String>> groupsByUser = new HashMap<>();
+            membersByGroup.forEach((group, members) -> {
+                for (String member : members) {
+                    groupsByUser.computeIfAbsent(key(member), m -> ImmutableSet.builder()).add(group);
+                }
+            });
+            final ImmutableMap.Builder<String, ImmutableSet<String>> index = ImmutableMap.builder();
+            groupsByUser.forEach((user, groups) -> index.put(user, groups.build()));
+            snapshot.set(new Snapshot(index.build(), System.nanoTime()));
+            LOG.debug("Loaded group snapshot of {} groups and {} users", membersByGroup.size(), groupsByUser.size());
+        } catch (NamingException | RuntimeException e) {
+            LOG.warn("Unable to refresh group membership snapshot: {}", e.getMessage());
+        }
+    }
+
+    private static String key(String userName) {
+        return userName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Snapshot {
+        private final ImmutableMap<String, ImmutableSet<String>> groupsByUser;
+        private final long loadedAtNanos;
+
+        Snapshot(ImmutableMap<String, ImmutableSet<String>> groupsByUser, long loadedAtNanos) {
+            this.groupsByUser = groupsByUser;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.yammer.dropwizard.authenticator;
+
+/**
+ * How {@link LdapAuthenticator} finds the groups of a user who just bound.
+ */
+public enum GroupResolutionStrategy {
+    /** Search {@code groupFilter} for groups listing the user in {@code groupMembershipAttribute}. */
+    GROUP_SEARCH,
+
+    /**
+     * Read {@code memberOfAttribute} from the user's own entry, as maintained by the OpenLDAP memberof overlay or
+     * Active Directory. Costs a single base-object read; only groups under {@code groupFilter} whose DN is named
+     * by {@code groupNameAttribute} are taken into account.
+     */
+    MEMBER_OF,
+
+    /**
+     * Search {@code groupFilter} with Active Directory's {@code LDAP_MATCHING_RULE_IN_CHAIN}, which the server
+     * expands to every group containing the user directly or through nested groups.
+     */
+    MATCHING_RULE_IN_CHAIN
+}
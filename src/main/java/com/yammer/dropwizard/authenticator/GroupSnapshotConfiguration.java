@@ -0,0 +1,45 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class GroupSnapshotConfiguration {
+    private boolean enabled = false;
+
+    @NotNull
+    @Valid
+    private Duration refreshInterval = Duration.minutes(1);
+
+    @NotNull
+    @Valid
+    private Duration maxStaleness = Duration.minutes(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public GroupSnapshotConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public GroupSnapshotConfiguration setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public GroupSnapshotConfiguration setMaxStaleness(Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+        return this;
+    }
+}
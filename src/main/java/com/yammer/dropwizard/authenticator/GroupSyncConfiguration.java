@@ -0,0 +1,59 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class GroupSyncConfiguration {
+    private boolean enabled = false;
+
+    @NotNull
+    @Valid
+    private Duration interval = Duration.seconds(30);
+
+    @NotNull
+    @Valid
+    private Duration fullResyncInterval = Duration.hours(1);
+
+    @NotNull
+    @NotEmpty
+    private String timestampAttribute = "modifyTimestamp";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public GroupSyncConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public GroupSyncConfiguration setInterval(Duration interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public Duration getFullResyncInterval() {
+        return fullResyncInterval;
+    }
+
+    public GroupSyncConfiguration setFullResyncInterval(Duration fullResyncInterval) {
+        this.fullResyncInterval = fullResyncInterval;
+        return this;
+    }
+
+    public String getTimestampAttribute() {
+        return timestampAttribute;
+    }
+
+    public GroupSyncConfiguration setTimestampAttribute(String timestampAttribute) {
+        this.timestampAttribute = timestampAttribute;
+        return this;
+    }
+}
@@ -0,0 +1,65 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class HealthProbeConfiguration {
+    private boolean enabled = true;
+
+    @NotNull
+    @Valid
+    private Duration interval = Duration.seconds(10);
+
+    @NotNull
+    @Valid
+    private Duration timeout = Duration.seconds(2);
+
+    @NotNull
+    @Valid
+    private Duration maxStaleness = Duration.seconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public HealthProbeConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public HealthProbeConfiguration setInterval(Duration interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * Connect and read timeout of a single probe.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public HealthProbeConfiguration setTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * How long after its last successful probe a server is still reported healthy, so a stuck prober cannot
+     * keep reporting an old result.
+     */
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public HealthProbeConfiguration setMaxStaleness(Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+        return this;
+    }
+}
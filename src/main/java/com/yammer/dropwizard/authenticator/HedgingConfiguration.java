@@ -0,0 +1,112 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class HedgingConfiguration {
+    private boolean enabled = false;
+
+    @NotNull
+    @Valid
+    private Duration delay = Duration.milliseconds(0);
+
+    @DecimalMin("50.0")
+    @DecimalMax("99.99")
+    private double percentile = 95.0;
+
+    @NotNull
+    @Valid
+    private Duration minimumDelay = Duration.milliseconds(5);
+
+    @DecimalMin("0.0")
+    @DecimalMax("100.0")
+    private double budgetPercent = 5.0;
+
+    @Min(1)
+    private int budgetBurst = 10;
+
+    @Min(1)
+    private int threads = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public HedgingConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * How long to wait for the first server before asking a second one. Zero waits for the observed
+     * {@link #getPercentile()} latency instead.
+     */
+    public Duration getDelay() {
+        return delay;
+    }
+
+    public HedgingConfiguration setDelay(Duration delay) {
+        this.delay = delay;
+        return this;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public HedgingConfiguration setPercentile(double percentile) {
+        this.percentile = percentile;
+        return this;
+    }
+
+    public Duration getMinimumDelay() {
+        return minimumDelay;
+    }
+
+    public HedgingConfiguration setMinimumDelay(Duration minimumDelay) {
+        this.minimumDelay = minimumDelay;
+        return this;
+    }
+
+    /**
+     * Extra requests allowed, as a percentage of hedgeable operations, so a slow directory is not sent
+     * twice its load.
+     */
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public HedgingConfiguration setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+        return this;
+    }
+
+    /**
+     * Hedges that may be sent back to back when the budget has built up.
+     */
+    public int getBudgetBurst() {
+        return budgetBurst;
+    }
+
+    public HedgingConfiguration setBudgetBurst(int budgetBurst) {
+        this.budgetBurst = budgetBurst;
+        return this;
+    }
+
+    /**
+     * Attempts that may be in flight at once; operations beyond that run unhedged on the calling thread.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public HedgingConfiguration setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+}
@@ -0,0 +1,218 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.codahale.metrics.Timer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.SizeLimitExceededException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+
+/**
+ * The default {@link LdapClient}, on the JDK's JNDI provider. Users bind over their server's
+ * {@link LdapConnectionPool} if there is one and a new connection otherwise; group searches likewise use the
+ * search connection pools or new anonymous connections.
+ */
+final class JndiLdapClient implements LdapClient {
+    private static final String[] NO_ATTRIBUTES = new String[0];
+
+    private final Map<LdapServer, LdapConnectionPool> bindPools;
+    private final Map<LdapServer, LdapConnectionPool> searchPools;
+    private final Function<URI, Hashtable<String, String>> environment;
+    private final Timer connectTimer;
+
+    /**
+     * @param environment the JNDI environment of a new connection to a server, without credentials
+     */
+    JndiLdapClient(Map<LdapServer, LdapConnectionPool> bindPools, Map<LdapServer, LdapConnectionPool> searchPools,
+                   Function<URI, Hashtable<String, String>> environment, Timer connectTimer) {
+        this.bindPools = bindPools;
+        this.searchPools = searchPools;
+        this.environment = environment;
+        this.connectTimer = connectTimer;
+    }
+
+    @Override
+    public LdapSession bind(LdapServer server, String dn, String password) throws NamingException {
+        final LdapConnectionPool pool = bindPools.get(server);
+        if (pool != null) {
+            return new Session(pool.bind(dn, password), null);
+        }
+        final Hashtable<String, String> env = environment.apply(server.getUri());
+        env.put(Context.SECURITY_PRINCIPAL, dn);
+        env.put(Context.SECURITY_CREDENTIALS, password);
+        return new Session(new AutoclosingDirContext(env), null);
+    }
+
+    @Override
+    public LdapSession searchSession(LdapServer server) throws NamingException {
+        final LdapConnectionPool pool = searchPools.get(server);
+        return pool == null ? connect(server) : new Session(pool.acquire(true), pool);
+    }
+
+    @Override
+    public LdapSession connect(LdapServer server) throws NamingException {
+        final Hashtable<String, String> env = environment.apply(server.getUri());
+        env.put(Context.SECURITY_AUTHENTICATION, "none");
+        final Timer.Context timer = connectTimer.time();
+        try {
+            return new Session(new AutoclosingDirContext(env), null);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        // the pools belong to LdapAuthenticator
+    }
+
+    /**
+     * A context and, for pooled search connections, the pool to replace it from if the server dropped it while
+     * it sat idle. Only an operation that has not returned anything yet is retried.
+     */
+    private static final class Session implements LdapSession {
+        @Nullable
+        private final LdapConnectionPool pool;
+        private AutoclosingDirContext context;
+        private boolean delivered;
+
+        Session(AutoclosingDirContext context, @Nullable LdapConnectionPool pool) {
+            this.context = context;
+            this.pool = pool;
+        }
+
+        @Override
+        public void search(SearchPlan plan, String filter, int pageSize, EntryHandler handler) throws NamingException {
+            withReconnect(() -> {
+                PagedSearch.forEach(context, plan, filter, pageSize, result -> {
+                    delivered = true;
+                    handler.accept(new Entry(result.getNameInNamespace(), result.getAttributes()));
+                });
+                return null;
+            });
+        }
+
+        @Override
+        public boolean exists(SearchPlan plan, String filter) throws NamingException {
+            return withReconnect(() -> hasMore(context.search(plan.getBase(), filter, plan.getControls())));
+        }
+
+        @Override
+        public LdapEntry read(String dn, String[] attributes) throws NamingException {
+            return withReconnect(() -> new Entry(dn, context.getAttributes(dn, attributes)));
+        }
+
+        /**
+         * A base-object search for {@code (attribute=value)} returning no attributes, which the JNDI provider
+         * sends as an LDAP compare.
+         */
+        @Override
+        public boolean compare(String dn, String attribute, String value) throws NamingException {
+            final SearchControls controls = SearchPlan.controls(SearchControls.OBJECT_SCOPE, NO_ATTRIBUTES, 0, 0);
+            final String filter = String.format("(%s=%s)", attribute, SearchPlan.filterValue(value));
+            try {
+                return withReconnect(() -> hasMore(context.search(dn, filter, controls)));
+            } catch (NameNotFoundException e) {
+                return false;
+            }
+        }
+
+        private static boolean hasMore(NamingEnumeration<SearchResult> results) throws NamingException {
+            try {
+                return results.hasMore();
+            } catch (SizeLimitExceededException e) {
+                return true; // more than the one match asked for
+            } finally {
+                results.close();
+            }
+        }
+
+        private <T> T withReconnect(Operation<T> operation) throws NamingException {
+            try {
+                return operation.apply();
+            } catch (NamingException e) {
+                if (pool == null || !LdapServerSet.isServerFailure(e)) {
+                    throw e;
+                }
+                final PooledDirContext pooled = (PooledDirContext) context;
+                pooled.markBroken();
+                if (!pooled.isReused() || delivered) {
+                    throw e;
+                }
+                pooled.close();
+                context = null; // already released, should acquiring a new one fail
+                context = pool.acquire(false);
+                return operation.apply();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (context == null) {
+                return;
+            }
+            try {
+                context.close();
+            } catch (NamingException ignored) {
+                // nothing left to do with the connection
+            }
+        }
+
+        @FunctionalInterface
+        private interface Operation<T> {
+            T apply() throws NamingException;
+        }
+    }
+
+    private static final class Entry implements LdapEntry {
+        private final String dn;
+        private final Attributes attributes;
+
+        Entry(String dn, Attributes attributes) {
+            this.dn = dn;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public String getDn() {
+            return dn;
+        }
+
+        @Override
+        public String getValue(String attribute) throws NamingException {
+            final Attribute values = attributes == null ? null : attributes.get(attribute);
+            return values == null || values.size() == 0 ? null : (String) values.get(0);
+        }
+
+        @Override
+        public Collection<String> getValues(String attribute) throws NamingException {
+            final Attribute values = attributes == null ? null : attributes.get(attribute);
+            if (values == null) {
+                return Collections.emptyList();
+            }
+            final List<String> all = new ArrayList<>(values.size());
+            final NamingEnumeration<?> enumeration = values.getAll();
+            try {
+                while (enumeration.hasMore()) {
+                    all.add((String) enumeration.next());
+                }
+            } finally {
+                enumeration.close();
+            }
+            return all;
+        }
+    }
+}
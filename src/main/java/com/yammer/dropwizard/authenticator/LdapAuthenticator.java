@@ -2,180 +2,874 @@ package com.yammer.dropwizard.authenticator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.codahale.metrics.annotation.Timed;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import io.dropwizard.auth.basic.BasicCredentials;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.naming.AuthenticationException;
 import javax.naming.Context;
-import javax.naming.NamingEnumeration;
+import javax.naming.InvalidNameException;
 import javax.naming.NamingException;
-import javax.naming.directory.InitialDirContext;
-import javax.naming.directory.SearchControls;
-import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LdapAuthenticator {
+public class LdapAuthenticator implements AutoCloseable {
     private static final Logger LOG = LoggerFactory.getLogger(LdapAuthenticator.class);
+    private static final int GROUPS_PER_SEARCH = 100;
     protected final LdapConfiguration configuration;
 
     protected final LoadingCache<String, Set<String>> groupCache;
 
+    protected final LdapServerSet bindServers;
+
+    protected final LdapServerSet searchServers;
+
+    protected final Map<LdapServer, LdapConnectionPool> connectionPools;
+
+    protected final Map<LdapServer, LdapConnectionPool> searchPools;
+
+    protected final LdapCircuitBreaker circuitBreaker;
+
+    private final Cache<String, Set<String>> staleGroups;
+
+    private final GroupCacheStatistics groupStatistics;
+
+    protected final ExecutorService executor;
+
+    protected final FailedLoginThrottle failedLogins;
+
+    protected final GroupMembershipIndex groupIndex;
+
+    protected final GroupChangeSync groupSync;
+
+    protected final LdapMetrics metrics;
+
+    protected final LdapHealthProber healthProber;
+
+    protected final LdapHedger hedger;
+
+    private final LdapClient client;
+
+    private final SearchPlans searches;
+
+    private final LdapName groupBase;
+
     public LdapAuthenticator(LdapConfiguration configuration) {
+        this(configuration, new MetricRegistry());
+    }
+
+    public LdapAuthenticator(LdapConfiguration configuration, MetricRegistry metricRegistry) {
+        this(configuration, metricRegistry, LdapMetrics.DEFAULT_PREFIX);
+    }
+
+    /**
+     * Reports metrics under {@code metricsPrefix}, which must differ from that of every other authenticator
+     * registered with {@code metricRegistry}.
+     */
+    public LdapAuthenticator(LdapConfiguration configuration, MetricRegistry metricRegistry, String metricsPrefix) {
         this.configuration = checkNotNull(configuration);
-        this.groupCache  = Caffeine.from(configuration.getCachePolicy())
-                .build( groupName -> {
-                    try {
-                        return getGroupData(groupName);
-                    } catch (NamingException e) {
-                        LOG.error("Error while fetching group data for group {}", groupName, e);
-                        return Collections.emptySet();
+        this.metrics = new LdapMetrics(metricRegistry, metricsPrefix);
+        this.searches = new SearchPlans(configuration);
+        this.groupBase = parseGroupBase(configuration.getGroupFilter());
+        final ServerSelectionConfiguration selection = configuration.getServerSelection();
+        final List<LdapServer> servers = toServers(configuration.getServers().isEmpty()
+                ? List.of(configuration.getUri()) : configuration.getServers(), selection);
+        this.bindServers = new LdapServerSet(servers, List.of(), selection.getStrategy());
+        this.searchServers = configuration.getReplicas().isEmpty()
+                ? bindServers
+                : new LdapServerSet(toServers(configuration.getReplicas(), selection), servers, selection.getStrategy());
+        final ImmutableMap.Builder<LdapServer, LdapConnectionPool> pools = ImmutableMap.builder();
+        if (configuration.getConnectionPool().isEnabled() && configuration.getClient() == LdapClientType.JNDI) {
+            for (LdapServer server : servers) {
+                pools.put(server, new LdapConnectionPool(configuration.getConnectionPool(),
+                        () -> pooledContextConfiguration(server.getUri()), metrics.getConnect()));
+            }
+        }
+        this.connectionPools = pools.build();
+        this.searchPools = buildSearchPools();
+        this.client = buildClient();
+        this.executor = LdapExecutors.create(configuration.getExecutor(), "ldap-authenticator");
+        this.hedger = new LdapHedger(configuration.getHedging());
+        this.failedLogins = new FailedLoginThrottle(configuration.getFailedLogins(), new CredentialDigester());
+        this.circuitBreaker = new LdapCircuitBreaker(configuration.getCircuitBreaker());
+        this.staleGroups = buildStaleGroups();
+        this.groupStatistics = new GroupCacheStatistics();
+        this.groupCache = weighGroups(Caffeine.from(groupCacheSpec())
+                .executor(Runnable::run)
+                .<String, Set<String>>removalListener((group, members, cause) -> {
+                    if (staleGroups != null && cause.wasEvicted()) {
+                        staleGroups.put(group, members);
+                    }
+                    if (cause != RemovalCause.REPLACED) {
+                        groupStatistics.remove(group);
+                    }
+                }))
+                .recordStats()
+                .build(new CacheLoader<String, Set<String>>() {
+                    @Override
+                    public Set<String> load(String group) throws NamingException {
+                        return loadGroupData(group);
+                    }
+
+                    @Override
+                    public Map<String, Set<String>> loadAll(Iterable<? extends String> groups) throws NamingException {
+                        return loadGroupsData(ImmutableSet.copyOf(groups));
                     }
                 });
+        metrics.registerGroupCache(groupCache);
+        metrics.registerServers(ImmutableSet.<LdapServer>builder()
+                .addAll(bindServers.getServers())
+                .addAll(searchServers.getServers())
+                .build());
+        metrics.registerPools(connectionPools);
+        metrics.registerSearchPools(searchPools);
+        metrics.registerCircuitBreaker(circuitBreaker);
+        metrics.registerHedger(hedger);
+        this.groupSync = configuration.getGroupSync().isEnabled()
+                ? new GroupChangeSync(configuration.getGroupSync(), groupCache, this::fetchGroupChanges)
+                : null;
+        this.healthProber = configuration.getHealthProbe().isEnabled()
+                ? new LdapHealthProber(configuration.getHealthProbe(), uris(bindServers),
+                        searchServers == bindServers ? List.of() : uris(searchServers), this::buildProbeContext)
+                : null;
+        // last: its first load runs right away, on another thread, through everything built above
+        this.groupIndex = buildGroupIndex();
+    }
+
+    /**
+     * One pool of persistent search connections per server group searches may be sent to: the replicas and, as
+     * their fallback, the servers users bind against.
+     */
+    private Map<LdapServer, LdapConnectionPool> buildSearchPools() {
+        final SearchConnectionConfiguration searchConnections = configuration.getSearchConnections();
+        if (!searchConnections.isEnabled() || configuration.getClient() != LdapClientType.JNDI) {
+            return ImmutableMap.of();
+        }
+        final Map<LdapServer, LdapConnectionPool> pools = new LinkedHashMap<>();
+        for (LdapServer server : Iterables.concat(searchServers.getServers(), bindServers.getServers())) {
+            pools.computeIfAbsent(server, ignored -> new LdapConnectionPool(searchConnections.toPoolConfiguration(),
+                    () -> searchContextConfiguration(server.getUri()), metrics.getConnect()));
+        }
+        return ImmutableMap.copyOf(pools);
+    }
+
+    private LdapClient buildClient() {
+        if (configuration.getClient() == LdapClientType.UNBOUNDID) {
+            return new UnboundIdLdapClient(configuration, bindServers.getServers(),
+                    Iterables.concat(searchServers.getServers(), bindServers.getServers()));
+        }
+        return new JndiLdapClient(connectionPools, searchPools, this::contextConfiguration, metrics.getConnect());
+    }
+
+    /**
+     * {@link LdapConfiguration#getCachePolicy()}, without its entry count limit if {@link GroupCacheConfiguration}
+     * limits the weight of the cache instead.
+     */
+    private CaffeineSpec groupCacheSpec() {
+        if (!configuration.getGroupCache().isWeighted()) {
+            return configuration.getCachePolicy();
+        }
+        final StringBuilder spec = new StringBuilder();
+        for (String option : configuration.getCachePolicy().toParsableString().split(",")) {
+            final String key = option.trim();
+            if (key.isEmpty() || key.startsWith("maximumSize") || key.startsWith("maximumWeight")) {
+                continue;
+            }
+            spec.append(spec.length() == 0 ? "" : ",").append(key);
+        }
+        return CaffeineSpec.parse(spec.toString());
+    }
+
+    private Caffeine<String, Set<String>> weighGroups(Caffeine<String, Set<String>> builder) {
+        final GroupCacheConfiguration groupCacheConfiguration = configuration.getGroupCache();
+        if (groupCacheConfiguration.getMaximumMemory() != null) {
+            return builder.maximumWeight(groupCacheConfiguration.getMaximumMemory().toBytes())
+                    .weigher((group, members) ->
+                            (int) Math.min(Integer.MAX_VALUE, GroupCacheStatistics.estimateBytes(group, members)));
+        }
+        if (groupCacheConfiguration.getMaximumMembers() > 0) {
+            return builder.maximumWeight(groupCacheConfiguration.getMaximumMembers())
+                    .weigher((group, members) -> members.size() + 1);
+        }
+        return builder;
+    }
+
+    /**
+     * Group memberships evicted from {@link #groupCache} are kept here for the stale grace period, to be served
+     * if they cannot be reloaded because the directory is unreachable.
+     */
+    private Cache<String, Set<String>> buildStaleGroups() {
+        final CircuitBreakerConfiguration circuitBreaker = configuration.getCircuitBreaker();
+        if (circuitBreaker.getStaleGracePeriod().toNanoseconds() <= 0) {
+            return null;
+        }
+        return Caffeine.newBuilder()
+                .maximumSize(circuitBreaker.getStaleMaximumSize())
+                .expireAfterWrite(circuitBreaker.getStaleGracePeriod().toNanoseconds(), TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    private static LdapName parseGroupBase(String groupFilter) {
+        try {
+            return new LdapName(groupFilter);
+        } catch (InvalidNameException e) {
+            LOG.warn("groupFilter {} is not a DN; memberOf values will not be checked against it", groupFilter);
+            return null;
+        }
     }
 
-    private static String sanitizeEntity(String name) {
+    private static List<LdapServer> toServers(List<URI> uris, ServerSelectionConfiguration selection) {
+        final List<LdapServer> servers = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            servers.add(new LdapServer(uri, selection));
+        }
+        return servers;
+    }
+
+    private static List<URI> uris(LdapServerSet servers) {
+        final List<URI> uris = new ArrayList<>(servers.getServers().size());
+        for (LdapServer server : servers.getServers()) {
+            uris.add(server.getUri());
+        }
+        return uris;
+    }
+
+    private GroupMembershipIndex buildGroupIndex() {
+        if (configuration.getNestedGroups().isEnabled()) {
+            if (configuration.getGroupSnapshot().isEnabled()) {
+                LOG.info("Nested group resolution keeps its own snapshot of every group; ignoring groupSnapshot");
+            }
+            return new GroupMembershipIndex(configuration.getNestedGroups(), this::loadNestedGroupMembers);
+        }
+        if (!configuration.getGroupSnapshot().isEnabled()) {
+            return null;
+        }
+        if (configuration.getRestrictToGroups().isEmpty()) {
+            LOG.warn("Group snapshots need restrictToGroups to be set; searching LDAP for every login instead");
+            return null;
+        }
+        return new GroupMembershipIndex(configuration.getGroupSnapshot(), this::loadRestrictedGroupMembers);
+    }
+
+    static String sanitizeEntity(String name) {
         return name.replaceAll("[^A-Za-z0-9-_.]", "");
     }
 
     public boolean canAuthenticate() {
         try {
-            new InitialDirContext(contextConfiguration()).close();
-            return true;
+            return execute(bindServers, server -> {
+                client.connect(server).close();
+                return true;
+            });
         } catch (Exception err) {
             //can't authenticate
         }
         return false;
     }
 
-    private boolean filterByGroup(InitialDirContext context, String sanitizedUsername) throws NamingException {
+    private boolean filterByGroup(LdapSession session, String sanitizedUsername) throws NamingException {
         final Set<String> restrictedToGroups = configuration.getRestrictToGroups();
         if (restrictedToGroups.isEmpty()) {
             return true;
         }
-        final StringBuilder groupFilter = new StringBuilder();
-        for (String group : restrictedToGroups) {
-            final String sanitizedGroup = sanitizeEntity(group);
-            groupFilter.append(String.format("(%s=%s)", configuration.getGroupNameAttribute(), sanitizedGroup));
+        if (groupIndex != null) {
+            final Optional<Set<String>> indexedGroups = groupIndex.groupsOf(sanitizedUsername);
+            if (indexedGroups.isPresent()) {
+                return !Collections.disjoint(indexedGroups.get(), restrictedToGroups);
+            }
+        }
+        switch (configuration.getGroupResolution()) {
+            case MEMBER_OF:
+                return !Collections.disjoint(memberOfGroups(session, sanitizedUsername), restrictedToGroups);
+            case MATCHING_RULE_IN_CHAIN:
+                return exists(session, searches.membershipInChainExists, SearchPlan.filterValue(userDn(sanitizedUsername)));
+            default:
+                return exists(session, searches.membershipExists, sanitizedUsername);
         }
-        final String filter = String.format("(&(%s=%s)(|%s))", configuration.getGroupMembershipAttribute(), sanitizedUsername, groupFilter);
-        final NamingEnumeration<SearchResult> result = context.search(configuration.getGroupFilter(), filter, new SearchControls());
+    }
+
+    private boolean exists(LdapSession session, SearchPlan plan, String argument) throws NamingException {
+        final Timer.Context timer = metrics.search(plan).time();
         try {
-            return result.hasMore();
+            return session.exists(plan, plan.filter(argument));
         } finally {
-            result.close();
+            timer.stop();
         }
     }
 
-    private Set<String> getGroupMembershipsIntersectingWithRestrictedGroups(InitialDirContext context, String userName) throws NamingException {
-        final String filter = String.format("(&(%s=%s)(objectClass=%s))", configuration.getGroupMembershipAttribute(), userName, configuration.getGroupClassName());
-        final NamingEnumeration<SearchResult> result = context.search(configuration.getGroupFilter(), filter, new SearchControls());
+    private Set<String> getGroupMembershipsIntersectingWithRestrictedGroups(LdapSession session, String userName) throws NamingException {
+        if (groupIndex != null) {
+            final Optional<Set<String>> indexedGroups = groupIndex.groupsOf(userName);
+            if (indexedGroups.isPresent()) {
+                return configuration.getRestrictToGroups().isEmpty()
+                        ? indexedGroups.get()
+                        : ImmutableSet.copyOf(Sets.intersection(indexedGroups.get(), configuration.getRestrictToGroups()));
+            }
+        }
+        switch (configuration.getGroupResolution()) {
+            case MEMBER_OF:
+                return restricted(memberOfGroups(session, userName));
+            case MATCHING_RULE_IN_CHAIN:
+                return searchGroupNames(session, searches.userGroupsInChain, SearchPlan.filterValue(userDn(userName)));
+            default:
+                return searchGroupNames(session, searches.userGroups, userName);
+        }
+    }
 
-        ImmutableSet.Builder<String> overlappingGroups = ImmutableSet.builder();
-        try {
-            while (result.hasMore()) {
-                SearchResult next = result.next();
-                if (next.getAttributes() != null && next.getAttributes().get(configuration.getGroupNameAttribute()) != null) {
-                    String group = (String) next.getAttributes().get(configuration.getGroupNameAttribute()).get(0);
-                    if (configuration.getRestrictToGroups().isEmpty() ||
-                            configuration.getRestrictToGroups().contains(group)) {
-                        overlappingGroups.add(group);
-                    }
+    private Set<String> searchGroupNames(LdapSession session, SearchPlan plan, String argument) throws NamingException {
+        final ImmutableSet.Builder<String> overlappingGroups = ImmutableSet.builder();
+        search(session, plan, plan.filter(argument), next -> {
+            final String group = next.getValue(configuration.getGroupNameAttribute());
+            if (group != null) {
+                if (configuration.getRestrictToGroups().isEmpty() ||
+                        configuration.getRestrictToGroups().contains(group)) {
+                    overlappingGroups.add(group);
                 }
             }
-            return overlappingGroups.build();
+        });
+        return overlappingGroups.build();
+    }
+
+    private Set<String> restricted(Set<String> groups) {
+        return configuration.getRestrictToGroups().isEmpty()
+                ? groups
+                : ImmutableSet.copyOf(Sets.intersection(groups, configuration.getRestrictToGroups()));
+    }
+
+    /**
+     * Names of the groups listed in the user's own {@code memberOfAttribute}, read with the bound session. Values
+     * outside {@code groupFilter} or not named by {@code groupNameAttribute} are ignored.
+     */
+    private Set<String> memberOfGroups(LdapSession session, String userName) throws NamingException {
+        final SearchPlan plan = searches.memberOf;
+        final Set<String> groupDns;
+        final Timer.Context timer = metrics.search(plan).time();
+        try {
+            groupDns = new HashSet<>(session.read(userDn(userName), plan.getControls().getReturningAttributes())
+                    .getValues(configuration.getMemberOfAttribute()));
         } finally {
-            result.close();
+            timer.stop();
+        }
+        final ImmutableSet.Builder<String> groups = ImmutableSet.builder();
+        for (String groupDn : groupDns) {
+            final LdapName dn;
+            try {
+                dn = new LdapName(groupDn);
+            } catch (InvalidNameException e) {
+                continue;
+            }
+            if (dn.isEmpty() || (groupBase != null && !dn.startsWith(groupBase))) {
+                continue;
+            }
+            final Rdn leaf = dn.getRdn(dn.size() - 1);
+            if (leaf.getType().equalsIgnoreCase(configuration.getGroupNameAttribute())) {
+                groups.add(String.valueOf(leaf.getValue()));
+            }
         }
+        return groups.build();
+    }
+
+    private String userDn(String sanitizedUsername) {
+        return String.format("%s=%s,%s", configuration.getUserNameAttribute(), sanitizedUsername, configuration.getUserFilter());
     }
 
-    @Timed
     public boolean authenticate(BasicCredentials credentials) throws io.dropwizard.auth.AuthenticationException {
         final String sanitizedUsername = sanitizeEntity(credentials.getUsername());
+        if (failedLogins.isRejected(sanitizedUsername, credentials.getPassword())) {
+            LOG.debug("{} rejected after recent failed binds.", sanitizedUsername);
+            metrics.recordFailure();
+            return false;
+        }
         try {
-            try (AutoclosingDirContext context = buildContext(sanitizedUsername, credentials.getPassword())) {
-                return filterByGroup(context, sanitizedUsername);
+            final boolean permitted = execute(bindServers, server -> {
+                try (LdapSession session = bind(server, sanitizedUsername, credentials.getPassword())) {
+                    return filterByGroup(session, sanitizedUsername);
+                }
+            });
+            failedLogins.recordSuccess(sanitizedUsername);
+            if (permitted) {
+                metrics.recordSuccess();
+                return true;
             }
         } catch (AuthenticationException ae) {
-            LOG.error("{} failed to authenticate.", sanitizedUsername, ae);
+            failedLogins.recordFailure(sanitizedUsername, credentials.getPassword());
+            LOG.warn("{} failed to authenticate: {}", sanitizedUsername, ae.getMessage());
         } catch (NamingException err) {
+            metrics.recordError();
             throw new io.dropwizard.auth.AuthenticationException(String.format("LDAP Authentication failure (username: %s)",
                     sanitizedUsername), err);
         }
+        metrics.recordFailure();
         return false;
     }
 
     public boolean isValidUser(String userName, String role) {
-        Set<String> members = groupCache.get(role); // populate cache if not already populated (this is a no-op if already populated
+        if (groupIndex != null && configuration.getNestedGroups().isEnabled()) {
+            final Optional<Set<String>> indexedGroups = groupIndex.groupsOf(sanitizeEntity(userName));
+            if (indexedGroups.isPresent()) {
+                return indexedGroups.get().contains(role);
+            }
+        }
+        Set<String> members = groupMembers(role);
         if(Objects.isNull(members) || members.isEmpty()) {
             return false;
         }
         return members.contains(sanitizeEntity(userName));
     }
 
-    private AutoclosingDirContext buildContext(String sanitizedUsername, String password) throws NamingException {
-        final String userDN = String.format("%s=%s,%s", configuration.getUserNameAttribute(), sanitizedUsername, configuration.getUserFilter());
-        final var env = contextConfiguration();
-        env.put(Context.SECURITY_PRINCIPAL, userDN);
-        env.put(Context.SECURITY_CREDENTIALS, password);
-        return new AutoclosingDirContext(env);
+    /**
+     * Whether {@code userName} is a member of any of {@code roles}. Groups missing from the cache are loaded
+     * together, with one search per {@value #GROUPS_PER_SEARCH} groups.
+     */
+    public boolean isValidUser(String userName, Collection<String> roles) {
+        return !rolesOf(userName, roles).isEmpty();
+    }
+
+    /**
+     * Those of {@code roles} that {@code userName} is a member of, loading every uncached group in bulk. Calling
+     * it with all the roles a service checks warms the group cache in a few searches.
+     */
+    public Set<String> rolesOf(String userName, Collection<String> roles) {
+        final String sanitizedUsername = sanitizeEntity(userName);
+        if (groupIndex != null && configuration.getNestedGroups().isEnabled()) {
+            final Optional<Set<String>> indexedGroups = groupIndex.groupsOf(sanitizedUsername);
+            if (indexedGroups.isPresent()) {
+                return ImmutableSet.copyOf(Sets.filter(ImmutableSet.copyOf(roles), indexedGroups.get()::contains));
+            }
+        }
+        final ImmutableSet.Builder<String> memberships = ImmutableSet.builder();
+        groupMembers(roles).forEach((role, members) -> {
+            if (members.contains(sanitizedUsername)) {
+                memberships.add(role);
+            }
+        });
+        return memberships.build();
+    }
+
+    /**
+     * Members of {@code group}, loading them if they are not cached. Failed loads are not cached; while the
+     * directory is unreachable the last known members are served for the stale grace period.
+     */
+    private Set<String> groupMembers(String group) {
+        groupStatistics.recordAccess(group);
+        try {
+            return groupCache.get(group);
+        } catch (CompletionException e) {
+            return failedGroupMembers(group, e);
+        }
+    }
+
+    /**
+     * Members of each of {@code groups}, loading all those not cached with {@link #loadGroupsData(Set)}.
+     */
+    private Map<String, Set<String>> groupMembers(Collection<String> groups) {
+        for (String group : groups) {
+            groupStatistics.recordAccess(group);
+        }
+        try {
+            return groupCache.getAll(groups);
+        } catch (CompletionException e) {
+            final Map<String, Set<String>> members = new HashMap<>();
+            for (String group : groups) {
+                final Set<String> cached = groupCache.getIfPresent(group);
+                members.put(group, cached != null ? cached : failedGroupMembers(group, e));
+            }
+            return members;
+        }
+    }
+
+    private Set<String> failedGroupMembers(String group, CompletionException e) {
+        if (groupCache.getIfPresent(group) == null) {
+            groupStatistics.remove(group);
+        }
+        if (staleGroups != null && LdapCircuitBreaker.isOutage(e)) {
+            groupCache.cleanUp(); // moves just-expired entries into staleGroups
+            final Set<String> stale = staleGroups.getIfPresent(group);
+            if (stale != null) {
+                LOG.warn("LDAP is unreachable; using the last known members of group {}", group);
+                return stale;
+            }
+        }
+        LOG.error("Error while fetching group data for group {}", group, e.getCause());
+        return Collections.emptySet();
+    }
+
+    private LdapSession bind(LdapServer server, String sanitizedUsername, String password) throws NamingException {
+        final Timer.Context timer = metrics.getBind().time();
+        try {
+            return client.bind(server, userDn(sanitizedUsername), password);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void search(LdapSession session, SearchPlan plan, String filter, LdapSession.EntryHandler handler)
+            throws NamingException {
+        final Timer.Context timer = metrics.search(plan).time();
+        try {
+            session.search(plan, filter, configuration.getSearchPageSize(), handler);
+        } finally {
+            timer.stop();
+        }
     }
 
-    @Timed
     public Optional<LdapUser> authenticateAndReturnPermittedGroups(BasicCredentials credentials) throws io.dropwizard.auth.AuthenticationException {
         final String sanitizedUsername = sanitizeEntity(credentials.getUsername());
+        if (failedLogins.isRejected(sanitizedUsername, credentials.getPassword())) {
+            LOG.debug("{} rejected after recent failed binds.", sanitizedUsername);
+            metrics.recordFailure();
+            return Optional.empty();
+        }
         try {
-            try (AutoclosingDirContext context = buildContext(sanitizedUsername, credentials.getPassword())) {
-                Set<String> groupMemberships = getGroupMembershipsIntersectingWithRestrictedGroups(context, sanitizedUsername);
-                if (!groupMemberships.isEmpty()) {
-                    return Optional.of(new LdapUser(sanitizedUsername, groupMemberships));
+            final Set<String> groupMemberships = execute(bindServers, server -> {
+                try (LdapSession session = bind(server, sanitizedUsername, credentials.getPassword())) {
+                    return getGroupMembershipsIntersectingWithRestrictedGroups(session, sanitizedUsername);
                 }
+            });
+            failedLogins.recordSuccess(sanitizedUsername);
+            if (!groupMemberships.isEmpty()) {
+                metrics.recordSuccess();
+                return Optional.of(new LdapUser(sanitizedUsername, groupMemberships));
             }
         } catch (AuthenticationException ae) {
-            LOG.error("{} failed to authenticate.", sanitizedUsername, ae);
+            failedLogins.recordFailure(sanitizedUsername, credentials.getPassword());
+            LOG.warn("{} failed to authenticate: {}", sanitizedUsername, ae.getMessage());
         } catch (NamingException err) {
+            metrics.recordError();
             throw new io.dropwizard.auth.AuthenticationException(String.format("LDAP Authentication failure (username: %s)",
                     sanitizedUsername), err);
         }
+        metrics.recordFailure();
         return Optional.empty();
     }
 
-    private Hashtable<String, String> contextConfiguration() {
+    /**
+     * Runs {@link #authenticate(BasicCredentials)} on the LDAP executor instead of the calling thread.
+     */
+    public CompletableFuture<Boolean> authenticateAsync(BasicCredentials credentials) {
+        return supplyAsync(() -> authenticate(credentials));
+    }
+
+    /**
+     * Runs {@link #authenticateAndReturnPermittedGroups(BasicCredentials)} on the LDAP executor instead of the
+     * calling thread.
+     */
+    public CompletableFuture<Optional<LdapUser>> authenticateAndReturnPermittedGroupsAsync(BasicCredentials credentials) {
+        return supplyAsync(() -> authenticateAndReturnPermittedGroups(credentials));
+    }
+
+    /**
+     * The bounded executor LDAP I/O is offloaded to.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private <T> T execute(LdapServerSet servers, LdapServerSet.Operation<T> operation) throws NamingException {
+        return circuitBreaker.execute(() -> servers.execute(operation));
+    }
+
+    /**
+     * Like {@link #execute(LdapServerSet, LdapServerSet.Operation)}, hedged across servers if configured. Only for
+     * anonymous reads: repeating them on another server is harmless.
+     */
+    private <T> T executeIdempotent(LdapServerSet servers, LdapServerSet.Operation<T> operation) throws NamingException {
+        return circuitBreaker.execute(() -> hedger.execute(servers, operation));
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(LdapCall<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.call();
+                } catch (io.dropwizard.auth.AuthenticationException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LdapCall<T> {
+        T call() throws io.dropwizard.auth.AuthenticationException;
+    }
+
+    /**
+     * Reads every group with a single search and resolves nested groups, so each group maps to all the users it
+     * contains directly or through its subgroups.
+     */
+    private Map<String, Set<String>> loadNestedGroupMembers() throws NamingException {
+        final List<GroupGraph.Group> groups = executeIdempotent(searchServers, this::loadAllGroups);
+        final Map<String, Set<String>> membersByGroup = GroupGraph.transitiveMembers(groups,
+                configuration.getUserNameAttribute(), configuration.getNestedGroups().isSubgroupsByName());
+        LOG.debug("Resolved nested memberships of {} groups", membersByGroup.size());
+        return membersByGroup;
+    }
+
+    private List<GroupGraph.Group> loadAllGroups(LdapServer server) throws NamingException {
+        final SearchPlan plan = searches.allGroups;
+        return withSearchContext(server, session -> {
+            final List<GroupGraph.Group> groups = new ArrayList<>();
+            search(session, plan, plan.filter(), next -> {
+                final String name = next.getValue(configuration.getGroupNameAttribute());
+                if (name == null) {
+                    return;
+                }
+                final Set<String> members = new HashSet<>(next.getValues(configuration.getGroupMembershipAttribute()));
+                groups.add(new GroupGraph.Group(name, next.getDn(), members));
+            });
+            return groups;
+        });
+    }
+
+    /**
+     * Reads the members of every restricted group with a single search.
+     */
+    private Map<String, Set<String>> loadRestrictedGroupMembers() throws NamingException {
+        return executeIdempotent(searchServers, this::loadRestrictedGroupMembers);
+    }
+
+    private Map<String, Set<String>> loadRestrictedGroupMembers(LdapServer server) throws NamingException {
+        final SearchPlan plan = searches.restrictedGroupMembers;
+        return withSearchContext(server, session -> {
+            final Map<String, Set<String>> membersByGroup = new HashMap<>();
+            search(session, plan, plan.filter(), next -> {
+                final String name = next.getValue(configuration.getGroupNameAttribute());
+                if (name == null || !configuration.getRestrictToGroups().contains(name)) {
+                    return;
+                }
+                membersByGroup.computeIfAbsent(name, group -> new HashSet<>())
+                        .addAll(next.getValues(configuration.getGroupMembershipAttribute()));
+            });
+            return membersByGroup;
+        });
+    }
+
+    /**
+     * Runs {@code operation} over a {@link LdapClient#searchSession(LdapServer) search session} on {@code server}
+     * and closes the session afterwards, returning a pooled connection whether or not the operation failed. Whether
+     * a failed operation is retried on a fresh connection is up to the client, so {@code operation} must not have
+     * side effects outside its result.
+     */
+    private <T> T withSearchContext(LdapServer server, SearchOperation<T> operation) throws NamingException {
+        try (LdapSession session = client.searchSession(server)) {
+            return operation.apply(session);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SearchOperation<T> {
+        T apply(LdapSession session) throws NamingException;
+    }
+
+    /**
+     * Persistent search connections bind once, as the configured service account or anonymously, and are owned
+     * by {@link LdapConnectionPool} rather than shared through JNDI's pool.
+     */
+    private Hashtable<String, String> searchContextConfiguration(URI server) {
+        final SearchConnectionConfiguration searchConnections = configuration.getSearchConnections();
+        final Hashtable<String, String> env = pooledContextConfiguration(server);
+        if (searchConnections.getBindDn() == null) {
+            env.put(Context.SECURITY_AUTHENTICATION, "none");
+        } else {
+            env.put(Context.SECURITY_AUTHENTICATION, "simple");
+            env.put(Context.SECURITY_PRINCIPAL, searchConnections.getBindDn());
+            env.put(Context.SECURITY_CREDENTIALS, Strings.nullToEmpty(searchConnections.getBindPassword()));
+        }
+        return env;
+    }
+
+    /**
+     * A dedicated anonymous connection for {@link LdapHealthProber}, bounded by the probe timeout rather than the
+     * regular ones.
+     */
+    private AutoclosingDirContext buildProbeContext(URI server) throws NamingException {
+        final String timeout = String.valueOf(configuration.getHealthProbe().getTimeout().toMilliseconds());
+        final Hashtable<String, String> env = contextConfiguration(server);
+        env.remove("com.sun.jndi.ldap.connect.pool");
+        env.put(Context.SECURITY_AUTHENTICATION, "none");
+        env.put("com.sun.jndi.ldap.connect.timeout", timeout);
+        env.put("com.sun.jndi.ldap.read.timeout", timeout);
+        return new AutoclosingDirContext(env);
+    }
+
+    private Hashtable<String, String> contextConfiguration(URI server) {
         final Hashtable<String, String> env = new Hashtable<>();
         env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        env.put(Context.PROVIDER_URL, configuration.getUri().toString());
+        env.put(Context.PROVIDER_URL, server.toString());
         env.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(configuration.getConnectTimeout().toMilliseconds()));
         env.put("com.sun.jndi.ldap.read.timeout", String.valueOf(configuration.getReadTimeout().toMilliseconds()));
         env.put("com.sun.jndi.ldap.connect.pool", "true");
         return env;
     }
 
-  private Set<String> getGroupData(String groupName) throws NamingException {
-        var env = new Hashtable<String, Object>(11);
-        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        env.put(Context.PROVIDER_URL, configuration.getUri().toString());
-        env.put(Context.SECURITY_AUTHENTICATION, "none");
-        var data = new HashSet<String>();
-        var ctx = new InitialDirContext(env);
-        final String filter = String.format("(&(cn=%s)(objectClass=%s))", groupName, "posixGroup");
-        final NamingEnumeration<SearchResult> result = ctx.search(configuration.getGroupFilter(), filter, new SearchControls());
-        try {
-            while (result.hasMore()) {
-                SearchResult next = result.next();
-                if (next.getAttributes() != null && next.getAttributes().get("memberUid") != null) {
-                    var members = next.getAttributes().get("memberUid").getAll();
-                    while(members.hasMore()) {
-                        data.add((String)members.next());
+    /**
+     * Connections owned by {@link LdapConnectionPool} are re-bound in place, which JNDI only allows on
+     * connections it is not sharing through its own pool.
+     */
+    private Hashtable<String, String> pooledContextConfiguration(URI server) {
+        final Hashtable<String, String> env = contextConfiguration(server);
+        env.remove("com.sun.jndi.ldap.connect.pool");
+        return env;
+    }
+
+    private Set<String> loadGroupData(String groupName) throws NamingException {
+        final long start = System.nanoTime();
+        final Set<String> members = getGroupData(groupName);
+        groupStatistics.recordLoad(groupName, System.nanoTime() - start);
+        return members;
+    }
+
+    /**
+     * Members of each of {@code groups}, with one search per {@value #GROUPS_PER_SEARCH} groups. Groups the
+     * directory does not have are reported empty, as {@link #getGroupData(String)} does.
+     */
+    private Map<String, Set<String>> loadGroupsData(Set<String> groups) throws NamingException {
+        final long start = System.nanoTime();
+        final Map<String, Set<String>> found = executeIdempotent(searchServers, server -> getGroupsData(server, groups));
+        final long nanosPerGroup = (System.nanoTime() - start) / Math.max(1, groups.size());
+        final Map<String, Set<String>> membersByGroup = new HashMap<>();
+        for (String group : groups) {
+            membersByGroup.put(group, found.getOrDefault(group, Collections.emptySet()));
+            groupStatistics.recordLoad(group, nanosPerGroup);
+        }
+        return membersByGroup;
+    }
+
+    private Map<String, Set<String>> getGroupsData(LdapServer server, Set<String> groups) throws NamingException {
+        final SearchPlan plan = searches.groupsMembers;
+        final String nameAttribute = configuration.getGroupNameAttribute();
+        return withSearchContext(server, session -> {
+            // directory matching is case-insensitive; answer under the names asked for
+            final Map<String, Set<String>> membersByGroup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (List<String> chunk : Iterables.partition(groups, GROUPS_PER_SEARCH)) {
+                final StringBuilder groupFilter = new StringBuilder();
+                for (String group : chunk) {
+                    groupFilter.append(String.format("(%s=%s)", nameAttribute, SearchPlan.filterValue(group)));
+                }
+                search(session, plan, plan.filter(groupFilter), next -> {
+                    final String name = next.getValue(nameAttribute);
+                    if (name == null) {
+                        return;
                     }
+                    membersByGroup.computeIfAbsent(name, group -> new HashSet<>())
+                            .addAll(next.getValues(configuration.getGroupMembershipAttribute()));
+                });
+            }
+            return membersByGroup;
+        });
+    }
+
+    private Set<String> getGroupData(String groupName) throws NamingException {
+        return executeIdempotent(searchServers, server -> getGroupData(server, groupName));
+    }
+
+    private Set<String> getGroupData(LdapServer server, String groupName) throws NamingException {
+        final SearchPlan plan = searches.groupMembers;
+        return withSearchContext(server, session -> {
+            final Set<String> data = new HashSet<>();
+            search(session, plan, plan.filter(SearchPlan.filterValue(groupName)), next ->
+                    data.addAll(next.getValues(configuration.getGroupMembershipAttribute())));
+            return data;
+        });
+    }
+
+    /**
+     * Reads the given groups the same way {@link #getGroupData(String)} does, in chunks of
+     * {@value #GROUPS_PER_SEARCH} per search, optionally only those modified since {@code changedSince}.
+     */
+    private Map<String, GroupChangeSync.GroupEntry> fetchGroupChanges(Set<String> groups, String changedSince) throws NamingException {
+        return executeIdempotent(searchServers, server -> fetchGroupChanges(server, groups, changedSince));
+    }
+
+    private Map<String, GroupChangeSync.GroupEntry> fetchGroupChanges(LdapServer server, Set<String> groups, String changedSince)
+            throws NamingException {
+        final String timestampAttribute = configuration.getGroupSync().getTimestampAttribute();
+        final SearchPlan plan = searches.groupChanges;
+        final String changedFilter = changedSince == null
+                ? ""
+                : String.format("(%s>=%s)", timestampAttribute, SearchPlan.filterValue(changedSince));
+
+        final String nameAttribute = configuration.getGroupNameAttribute();
+        return withSearchContext(server, session -> {
+            // a full sync empties every group missing from here, so ask for each by its exact name and answer
+            // under the names asked for, whatever case the directory uses
+            final Map<String, GroupChangeSync.GroupEntry> entries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (List<String> chunk : Iterables.partition(groups, GROUPS_PER_SEARCH)) {
+                final StringBuilder groupFilter = new StringBuilder();
+                for (String group : chunk) {
+                    groupFilter.append(String.format("(%s=%s)", nameAttribute, SearchPlan.filterValue(group)));
                 }
+                final String filter = plan.filter(changedFilter, groupFilter);
+                search(session, plan, filter, next -> {
+                    final String name = next.getValue(nameAttribute);
+                    if (name == null) {
+                        return;
+                    }
+                    final Set<String> members = new HashSet<>(next.getValues(configuration.getGroupMembershipAttribute()));
+                    entries.put(name, new GroupChangeSync.GroupEntry(members, next.getValue(timestampAttribute)));
+                });
             }
-        } finally {
-            result.close();
-            ctx.close();
+            return entries;
+        });
+    }
+
+    /**
+     * Size, estimated memory, hits and load time of each cached group, largest first.
+     */
+    public List<GroupCacheStatistics.GroupStats> getGroupCacheStatistics() {
+        return groupStatistics.report(groupCache);
+    }
+
+    /**
+     * The background prober health checks should report from, or {@code null} if probing is disabled.
+     */
+    public LdapHealthProber getHealthProber() {
+        return healthProber;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        hedger.close();
+        if (healthProber != null) {
+            healthProber.close();
+        }
+        if (groupSync != null) {
+            groupSync.close();
+        }
+        if (groupIndex != null) {
+            groupIndex.close();
+        }
+        client.close();
+        for (LdapConnectionPool pool : connectionPools.values()) {
+            pool.close();
+        }
+        for (LdapConnectionPool pool : searchPools.values()) {
+            pool.close();
         }
-        return data;
+        metrics.unregister();
     }
 }
@@ -1,18 +1,34 @@
 package com.yammer.dropwizard.authenticator;
 
+import static com.google.common.base.Preconditions.checkState;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import com.yammer.dropwizard.authenticator.healthchecks.LdapHealthCheck;
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.Authorizer;
-import io.dropwizard.auth.CachingAuthenticator;
 import io.dropwizard.auth.LdapAuthDynamicFeature;
 import io.dropwizard.auth.LdapAuthValueFactoryProvider;
 import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.lifecycle.AutoCloseableManager;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class LdapAuthenticatorBundle<T extends Configuration> implements ConfiguredBundle<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapAuthenticatorBundle.class);
+    private static final CaffeineSpec DEFAULT_CACHE_POLICY = new LdapConfiguration().getCachePolicy();
 
+    private LdapConfiguration ldapConfiguration;
     private LdapCanAuthenticate ldapContext;
 
     public abstract LdapConfiguration getConfiguration(final T configuration);
@@ -25,24 +41,121 @@ public abstract class LdapAuthenticatorBundle<T extends Configuration> implement
     @Override
     public void run(final T configuration, final Environment environment) {
         LdapConfiguration ldapConfiguration = getConfiguration(configuration);
-        CachingAuthenticator ldapAuthenticator = new CachingAuthenticator(environment.metrics(),
-                new UserResourceAuthenticator(new LdapAuthenticator(ldapConfiguration)),
-                ldapConfiguration.getCachePolicy());
-        environment.jersey().register(new LdapAuthDynamicFeature(
-                new BasicCredentialAuthFilter.Builder<LdapUser>()
-                        .setAuthenticator(ldapAuthenticator)
-                        .setAuthorizer((Authorizer<LdapUser>) (user, role) -> user.getRoles().contains(role))
-                        .setRealm("realm")
-                        .buildAuthFilter()));
+        synchronized (this) {
+            this.ldapConfiguration = ldapConfiguration;
+        }
+        warnIfCachePolicyWasMeantForCredentials(ldapConfiguration);
+        LdapAuthenticator authenticator = new LdapAuthenticator(ldapConfiguration, environment.metrics());
+        environment.lifecycle().manage(new AutoCloseableManager(authenticator));
+        environment.lifecycle().manage(new AutoCloseableManager(this::closeLdapContext));
+        environment.admin().addTask(new GroupCacheTask(authenticator));
+        final CredentialDigester digester = new CredentialDigester();
+        Authenticator<BasicCredentials, LdapUser> ldapAuthenticator = new UserResourceAuthenticator(authenticator);
+        if (ldapConfiguration.isCoalesceConcurrentLogins()) {
+            ldapAuthenticator = new CoalescingAuthenticator<>(environment.metrics(), ldapAuthenticator,
+                    ldapConfiguration.getCoalescingWaitTimeout(), digester::digest);
+        }
+        if (ldapConfiguration.getCredentialCache().getMaximumSize() > 0) {
+            final CredentialCachingAuthenticator cachingAuthenticator = new CredentialCachingAuthenticator(
+                    environment.metrics(), ldapAuthenticator, ldapConfiguration.getCredentialCache(), digester,
+                    ldapConfiguration.getCircuitBreaker().getStaleGracePeriod());
+            environment.lifecycle().manage(new AutoCloseableManager(cachingAuthenticator));
+            ldapAuthenticator = cachingAuthenticator;
+        }
+        final Authorizer<LdapUser> authorizer = (user, role) -> user.getRoles().contains(role);
+        final AuthFilter<BasicCredentials, LdapUser> basicAuthFilter;
+        if (ldapConfiguration.isAsyncAuthentication()) {
+            final FilterRegistration.Dynamic asyncAuth = environment.servlets().addFilter("ldap-async-auth",
+                    new AsyncBasicAuthServletFilter(AsyncAuthenticator.of(ldapAuthenticator, authenticator.getExecutor()),
+                            ldapConfiguration.getAsyncAuthenticationTimeout()));
+            asyncAuth.setAsyncSupported(true);
+            asyncAuth.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true,
+                    ldapConfiguration.getAsyncAuthenticationUrlPatterns().toArray(new String[0]));
+            basicAuthFilter = new AsyncBasicCredentialAuthFilter.Builder<LdapUser>()
+                    .setAuthenticator(ldapAuthenticator)
+                    .setAuthorizer(authorizer)
+                    .setRealm("realm")
+                    .buildAuthFilter();
+        } else {
+            basicAuthFilter = new BasicCredentialAuthFilter.Builder<LdapUser>()
+                    .setAuthenticator(ldapAuthenticator)
+                    .setAuthorizer(authorizer)
+                    .setRealm("realm")
+                    .buildAuthFilter();
+        }
+        AuthFilter<?, LdapUser> authFilter = basicAuthFilter;
+        final SessionTokenConfiguration sessionTokens = ldapConfiguration.getSessionTokens();
+        if (sessionTokens.isEnabled()) {
+            final SessionTokens tokens = new SessionTokens(sessionTokens);
+            environment.jersey().register(new SessionTokenIssuer(tokens, sessionTokens.getResponseHeader()));
+            authFilter = new SessionTokenAuthFilter.Builder<LdapUser>()
+                    .setFallback(basicAuthFilter)
+                    .setAuthenticator(tokens::verify)
+                    .setAuthorizer(authorizer)
+                    .setRealm("realm")
+                    .buildAuthFilter();
+        }
+        environment.jersey().register(new LdapAuthDynamicFeature(new LdapSecurityContextFilter(authFilter)));
         environment.jersey().register(LdapRolesAllowedDynamicFeature.class);
         //If you want to use @Auth to inject a custom Principal type into your resource
         environment.jersey().register(new LdapAuthValueFactoryProvider.Binder<>(LdapUser.class));
-        this.ldapContext = new LdapCanAuthenticate(ldapConfiguration);
-        environment.healthChecks().register("ldap",
-                new LdapHealthCheck<>(new ResourceAuthenticator(this.ldapContext)));
+        if (authenticator.getHealthProber() != null) {
+            environment.healthChecks().register("ldap", new LdapHealthCheck<>(authenticator.getHealthProber()));
+        } else {
+            // connects through the managed authenticator rather than a second one that would never be closed
+            final Authenticator<BasicCredentials, LdapUser> canAuthenticate = credentials -> authenticator.canAuthenticate()
+                    ? Optional.of(new LdapUser(credentials.getUsername(), Collections.emptySet()))
+                    : Optional.empty();
+            environment.healthChecks().register("ldap", new LdapHealthCheck<>(canAuthenticate));
+        }
+    }
+
+    /**
+     * {@code cachePolicy} used to size the credential cache as well as the group cache. A deployment whose policy
+     * cached logins, and which has not configured {@code credentialCache}, now authenticates every login against
+     * LDAP, so say so rather than change silently.
+     */
+    private static void warnIfCachePolicyWasMeantForCredentials(LdapConfiguration ldapConfiguration) {
+        final CaffeineSpec cachePolicy = ldapConfiguration.getCachePolicy();
+        if (cachePolicy.equals(DEFAULT_CACHE_POLICY) || !cachesEntries(cachePolicy)
+                || ldapConfiguration.getCredentialCache().getMaximumSize() > 0) {
+            return;
+        }
+        LOG.warn("cachePolicy ({}) only applies to the group cache and logins are no longer cached; set "
+                + "credentialCache.maximumSize and positiveTtl to keep caching them", cachePolicy.toParsableString());
+    }
+
+    private static boolean cachesEntries(CaffeineSpec cachePolicy) {
+        for (String option : cachePolicy.toParsableString().split(",")) {
+            final String key = option.trim();
+            if (key.equals("maximumSize=0") || key.equals("maximumWeight=0")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An authenticator whose {@code authenticate} reports whether LDAP can be reached, as the health check once
+     * did. It is created on first use, with its own connections, and closed when the application stops.
+     *
+     * @deprecated health checks are served from {@link LdapHealthProber}, or from the bundle's authenticator when
+     * {@code healthProbe} is disabled; call {@link LdapAuthenticator#canAuthenticate()} instead
+     * @throws IllegalStateException before the bundle has run
+     */
+    @Deprecated
+    public synchronized LdapCanAuthenticate getLdapContext() {
+        checkState(ldapConfiguration != null, "The LDAP context is available once the bundle has run");
+        if (ldapContext == null) {
+            ldapContext = new LdapCanAuthenticate(ldapConfiguration);
+        }
+        return ldapContext;
     }
 
-    public LdapCanAuthenticate getLdapContext() {
-        return this.ldapContext;
+    private synchronized void closeLdapContext() {
+        if (ldapContext != null) {
+            ldapContext.close();
+            ldapContext = null;
+        }
     }
 }
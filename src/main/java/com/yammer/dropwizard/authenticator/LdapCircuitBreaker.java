@@ -0,0 +1,170 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.Arrays;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops calling the directory once too many operations in a row fail to reach it, so requests fail immediately
+ * instead of each waiting out the connect timeout.
+ * <p>
+ * Outcomes are counted over a rolling {@code window}. When at least {@code minimumCalls} were seen and the share
+ * that failed with a connectivity problem (see {@link LdapServerSet#isServerFailure(NamingException)}) reaches
+ * {@code failureRateThreshold}, the breaker opens and rejects calls for {@code openDuration}. After that a single
+ * trial call is let through; it closes the breaker if it succeeds and re-opens it if it does not.
+ */
+public class LdapCircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapCircuitBreaker.class);
+    private static final int BUCKETS = 10;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws NamingException;
+    }
+
+    private final CircuitBreakerConfiguration configuration;
+    private final Ticker ticker;
+    private final long bucketNanos;
+    private final long[] bucketStarts = new long[BUCKETS];
+    private final int[] calls = new int[BUCKETS];
+    private final int[] failures = new int[BUCKETS];
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private boolean trialInFlight = false;
+
+    public LdapCircuitBreaker(CircuitBreakerConfiguration configuration) {
+        this(configuration, Ticker.systemTicker());
+    }
+
+    public LdapCircuitBreaker(CircuitBreakerConfiguration configuration, Ticker ticker) {
+        this.configuration = checkNotNull(configuration);
+        this.ticker = checkNotNull(ticker);
+        this.bucketNanos = Math.max(1, configuration.getWindow().toNanoseconds() / BUCKETS);
+    }
+
+    public <T> T execute(Call<T> call) throws NamingException {
+        if (!configuration.isEnabled()) {
+            return call.call();
+        }
+        final boolean trial = acquire();
+        boolean recorded = false;
+        try {
+            final T result = call.call();
+            record(trial, false);
+            recorded = true;
+            return result;
+        } catch (NamingException e) {
+            record(trial, LdapServerSet.isServerFailure(e));
+            recorded = true;
+            throw e;
+        } finally {
+            if (trial && !recorded) {
+                release();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean acquire() throws ServiceUnavailableException {
+        switch (state) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                if (ticker.read() - openedAtNanos < configuration.getOpenDuration().toNanoseconds()) {
+                    throw new ServiceUnavailableException("LDAP circuit breaker is open");
+                }
+                state = State.HALF_OPEN;
+                // fall through
+            default:
+                if (trialInFlight) {
+                    throw new ServiceUnavailableException("LDAP circuit breaker is open");
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void release() {
+        trialInFlight = false;
+    }
+
+    private synchronized void record(boolean trial, boolean failure) {
+        final long now = ticker.read();
+        if (trial) {
+            trialInFlight = false;
+            if (failure) {
+                open(now);
+            } else {
+                LOG.info("LDAP is reachable again; closing the circuit breaker");
+                state = State.CLOSED;
+                clear();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return; // a call that started before the breaker opened
+        }
+        final int bucket = (int) Math.floorMod(Math.floorDiv(now, bucketNanos), (long) BUCKETS);
+        final long bucketStart = now - Math.floorMod(now, bucketNanos);
+        if (bucketStarts[bucket] != bucketStart) {
+            bucketStarts[bucket] = bucketStart;
+            calls[bucket] = 0;
+            failures[bucket] = 0;
+        }
+        calls[bucket]++;
+        if (!failure) {
+            return;
+        }
+        failures[bucket]++;
+        int totalCalls = 0;
+        int totalFailures = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (now - bucketStarts[i] < bucketNanos * BUCKETS) {
+                totalCalls += calls[i];
+                totalFailures += failures[i];
+            }
+        }
+        if (totalCalls >= configuration.getMinimumCalls()
+                && totalFailures >= configuration.getFailureRateThreshold() * totalCalls) {
+            LOG.warn("{} of the last {} LDAP operations could not reach the directory; opening the circuit breaker for {}",
+                    totalFailures, totalCalls, configuration.getOpenDuration());
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAtNanos = now;
+        clear();
+    }
+
+    private void clear() {
+        Arrays.fill(calls, 0);
+        Arrays.fill(failures, 0);
+    }
+
+    /**
+     * Whether {@code failure}, or one of its causes, means the directory could not be reached (including the
+     * breaker being open) rather than that it rejected the request.
+     */
+    public static boolean isOutage(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NamingException && LdapServerSet.isServerFailure((NamingException) cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+package com.yammer.dropwizard.authenticator;
+
+import javax.naming.NamingException;
+
+/**
+ * How {@link LdapAuthenticator} reaches the directory, chosen with {@link LdapConfiguration#getClient()}. Each
+ * method opens a {@link LdapSession} on one server; {@link LdapServerSet} decides which.
+ */
+interface LdapClient extends AutoCloseable {
+    /**
+     * Binds as {@code dn}. A {@link javax.naming.AuthenticationException} means the credentials were rejected.
+     */
+    LdapSession bind(LdapServer server, String dn, String password) throws NamingException;
+
+    /**
+     * A session for group searches, as the configured search account or anonymously. It may be pooled, so it
+     * must be closed promptly. Every operation on the session, and every page of a paged search, goes over the
+     * same connection. Both clients replace a pooled connection the server dropped while it sat idle and retry the
+     * operation once, provided it has not handed over any entries yet; any other failure is left for
+     * {@link LdapServerSet} to fail over.
+     */
+    LdapSession searchSession(LdapServer server) throws NamingException;
+
+    /**
+     * A new anonymous connection, to check that the server accepts them.
+     */
+    LdapSession connect(LdapServer server) throws NamingException;
+
+    @Override
+    void close();
+}
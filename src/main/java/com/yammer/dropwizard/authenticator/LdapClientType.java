@@ -0,0 +1,15 @@
+package com.yammer.dropwizard.authenticator;
+
+/**
+ * The library {@link LdapAuthenticator} talks to the directory with.
+ */
+public enum LdapClientType {
+    /** The JDK's JNDI LDAP provider, with the optional {@link LdapConnectionPool}s. Needs no extra dependency. */
+    JNDI,
+
+    /**
+     * The UnboundID LDAP SDK with its own connection pools. {@code com.unboundid:unboundid-ldapsdk} must be on the
+     * classpath.
+     */
+    UNBOUNDID
+}
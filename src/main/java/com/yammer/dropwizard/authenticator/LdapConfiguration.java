@@ -4,8 +4,11 @@ import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import com.google.common.collect.Sets;
 import io.dropwizard.util.Duration;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
@@ -15,10 +18,44 @@ public class LdapConfiguration {
     @Valid
     private URI uri = URI.create("ldaps://www.example.com:636");
 
+    @NotNull
+    private List<URI> servers = new ArrayList<>();
+
+    @NotNull
+    private List<URI> replicas = new ArrayList<>();
+
+    @NotNull
+    @Valid
+    private ServerSelectionConfiguration serverSelection = new ServerSelectionConfiguration();
+
+    @NotNull
+    @Valid
+    private CircuitBreakerConfiguration circuitBreaker = new CircuitBreakerConfiguration();
+
+    @NotNull
+    @Valid
+    private HealthProbeConfiguration healthProbe = new HealthProbeConfiguration();
+
+    @NotNull
+    @Valid
+    private HedgingConfiguration hedging = new HedgingConfiguration();
+
     @NotNull
     @Valid
     private CaffeineSpec cachePolicy = CaffeineSpec.parse("maximumSize=0");
 
+    @NotNull
+    @Valid
+    private GroupCacheConfiguration groupCache = new GroupCacheConfiguration();
+
+    @NotNull
+    @Valid
+    private CredentialCacheConfiguration credentialCache = new CredentialCacheConfiguration();
+
+    @NotNull
+    @Valid
+    private FailedLoginConfiguration failedLogins = new FailedLoginConfiguration();
+
     @NotNull
     @NotEmpty
     private String userFilter = "ou=people,dc=example,dc=com";
@@ -43,6 +80,13 @@ public class LdapConfiguration {
     @NotEmpty
     private String groupClassName = "posixGroup";
 
+    @NotNull
+    private GroupResolutionStrategy groupResolution = GroupResolutionStrategy.GROUP_SEARCH;
+
+    @NotNull
+    @NotEmpty
+    private String memberOfAttribute = "memberOf";
+
     @NotNull
     @Valid
     private Duration connectTimeout = Duration.milliseconds(500);
@@ -51,10 +95,66 @@ public class LdapConfiguration {
     @Valid
     private Duration readTimeout = Duration.milliseconds(500);
 
+    @Min(0)
+    private int searchPageSize = 1000;
+
+    @Min(0)
+    private long searchCountLimit = 0;
+
+    @NotNull
+    @Valid
+    private Duration searchTimeLimit = Duration.seconds(5);
+
     @NotNull
     @Valid
     private Set<String> restrictToGroups = Sets.newHashSet();
 
+    @NotNull
+    @Valid
+    private GroupSnapshotConfiguration groupSnapshot = new GroupSnapshotConfiguration();
+
+    @NotNull
+    @Valid
+    private NestedGroupConfiguration nestedGroups = new NestedGroupConfiguration();
+
+    @NotNull
+    @Valid
+    private GroupSyncConfiguration groupSync = new GroupSyncConfiguration();
+
+    @NotNull
+    @Valid
+    private LdapConnectionPoolConfiguration connectionPool = new LdapConnectionPoolConfiguration();
+
+    @NotNull
+    @Valid
+    private SearchConnectionConfiguration searchConnections = new SearchConnectionConfiguration();
+
+    @NotNull
+    private LdapClientType client = LdapClientType.JNDI;
+
+    @NotNull
+    @Valid
+    private SessionTokenConfiguration sessionTokens = new SessionTokenConfiguration();
+
+    @NotNull
+    @Valid
+    private LdapExecutorConfiguration executor = new LdapExecutorConfiguration();
+
+    private boolean asyncAuthentication = false;
+
+    @NotNull
+    @Valid
+    private Duration asyncAuthenticationTimeout = Duration.seconds(5);
+
+    @NotEmpty
+    private List<String> asyncAuthenticationUrlPatterns = new ArrayList<>(List.of("/*"));
+
+    private boolean coalesceConcurrentLogins = true;
+
+    @NotNull
+    @Valid
+    private Duration coalescingWaitTimeout = Duration.seconds(2);
+
     public URI getUri() {
         return uri;
     }
@@ -64,6 +164,69 @@ public class LdapConfiguration {
         return this;
     }
 
+    /**
+     * The servers users bind against; {@link #getUri()} alone when empty.
+     */
+    public List<URI> getServers() {
+        return servers;
+    }
+
+    public LdapConfiguration setServers(List<URI> servers) {
+        this.servers = servers;
+        return this;
+    }
+
+    /**
+     * Read-only replicas that group searches are sent to before falling back to {@link #getServers()}.
+     */
+    public List<URI> getReplicas() {
+        return replicas;
+    }
+
+    public LdapConfiguration setReplicas(List<URI> replicas) {
+        this.replicas = replicas;
+        return this;
+    }
+
+    public ServerSelectionConfiguration getServerSelection() {
+        return serverSelection;
+    }
+
+    public LdapConfiguration setServerSelection(ServerSelectionConfiguration serverSelection) {
+        this.serverSelection = serverSelection;
+        return this;
+    }
+
+    public CircuitBreakerConfiguration getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public LdapConfiguration setCircuitBreaker(CircuitBreakerConfiguration circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public HealthProbeConfiguration getHealthProbe() {
+        return healthProbe;
+    }
+
+    public LdapConfiguration setHealthProbe(HealthProbeConfiguration healthProbe) {
+        this.healthProbe = healthProbe;
+        return this;
+    }
+
+    /**
+     * Hedging of the anonymous group searches sent to {@link #getReplicas()} (or {@link #getServers()}).
+     */
+    public HedgingConfiguration getHedging() {
+        return hedging;
+    }
+
+    public LdapConfiguration setHedging(HedgingConfiguration hedging) {
+        this.hedging = hedging;
+        return this;
+    }
+
     public CaffeineSpec getCachePolicy() {
         return cachePolicy;
     }
@@ -73,6 +236,33 @@ public class LdapConfiguration {
         return this;
     }
 
+    public GroupCacheConfiguration getGroupCache() {
+        return groupCache;
+    }
+
+    public LdapConfiguration setGroupCache(GroupCacheConfiguration groupCache) {
+        this.groupCache = groupCache;
+        return this;
+    }
+
+    public CredentialCacheConfiguration getCredentialCache() {
+        return credentialCache;
+    }
+
+    public LdapConfiguration setCredentialCache(CredentialCacheConfiguration credentialCache) {
+        this.credentialCache = credentialCache;
+        return this;
+    }
+
+    public FailedLoginConfiguration getFailedLogins() {
+        return failedLogins;
+    }
+
+    public LdapConfiguration setFailedLogins(FailedLoginConfiguration failedLogins) {
+        this.failedLogins = failedLogins;
+        return this;
+    }
+
     public String getUserFilter() {
         return userFilter;
     }
@@ -127,6 +317,27 @@ public class LdapConfiguration {
         return this;
     }
 
+    public GroupResolutionStrategy getGroupResolution() {
+        return groupResolution;
+    }
+
+    public LdapConfiguration setGroupResolution(GroupResolutionStrategy groupResolution) {
+        this.groupResolution = groupResolution;
+        return this;
+    }
+
+    /**
+     * The attribute of user entries listing the DNs of their groups, for {@link GroupResolutionStrategy#MEMBER_OF}.
+     */
+    public String getMemberOfAttribute() {
+        return memberOfAttribute;
+    }
+
+    public LdapConfiguration setMemberOfAttribute(String memberOfAttribute) {
+        this.memberOfAttribute = memberOfAttribute;
+        return this;
+    }
+
     public Duration getConnectTimeout() {
         return connectTimeout;
     }
@@ -145,6 +356,33 @@ public class LdapConfiguration {
         return this;
     }
 
+    public int getSearchPageSize() {
+        return searchPageSize;
+    }
+
+    public LdapConfiguration setSearchPageSize(int searchPageSize) {
+        this.searchPageSize = searchPageSize;
+        return this;
+    }
+
+    public long getSearchCountLimit() {
+        return searchCountLimit;
+    }
+
+    public LdapConfiguration setSearchCountLimit(long searchCountLimit) {
+        this.searchCountLimit = searchCountLimit;
+        return this;
+    }
+
+    public Duration getSearchTimeLimit() {
+        return searchTimeLimit;
+    }
+
+    public LdapConfiguration setSearchTimeLimit(Duration searchTimeLimit) {
+        this.searchTimeLimit = searchTimeLimit;
+        return this;
+    }
+
     public Set<String> getRestrictToGroups() {
         return restrictToGroups;
     }
@@ -153,4 +391,136 @@ public class LdapConfiguration {
         restrictToGroups.add(group);
         return this;
     }
+
+    public GroupSnapshotConfiguration getGroupSnapshot() {
+        return groupSnapshot;
+    }
+
+    public LdapConfiguration setGroupSnapshot(GroupSnapshotConfiguration groupSnapshot) {
+        this.groupSnapshot = groupSnapshot;
+        return this;
+    }
+
+    public NestedGroupConfiguration getNestedGroups() {
+        return nestedGroups;
+    }
+
+    public LdapConfiguration setNestedGroups(NestedGroupConfiguration nestedGroups) {
+        this.nestedGroups = nestedGroups;
+        return this;
+    }
+
+    public GroupSyncConfiguration getGroupSync() {
+        return groupSync;
+    }
+
+    public LdapConfiguration setGroupSync(GroupSyncConfiguration groupSync) {
+        this.groupSync = groupSync;
+        return this;
+    }
+
+    public LdapConnectionPoolConfiguration getConnectionPool() {
+        return connectionPool;
+    }
+
+    public LdapConfiguration setConnectionPool(LdapConnectionPoolConfiguration connectionPool) {
+        this.connectionPool = connectionPool;
+        return this;
+    }
+
+    /**
+     * Persistent connections, optionally bound as a service account, that group searches run over.
+     */
+    public SearchConnectionConfiguration getSearchConnections() {
+        return searchConnections;
+    }
+
+    public LdapConfiguration setSearchConnections(SearchConnectionConfiguration searchConnections) {
+        this.searchConnections = searchConnections;
+        return this;
+    }
+
+    /**
+     * The library used to talk to the directory; {@link LdapClientType#UNBOUNDID} needs the optional UnboundID
+     * LDAP SDK dependency.
+     */
+    public LdapClientType getClient() {
+        return client;
+    }
+
+    public LdapConfiguration setClient(LdapClientType client) {
+        this.client = client;
+        return this;
+    }
+
+    /**
+     * Signed tokens returned after a Basic login, which the bundle accepts as {@code Bearer} credentials.
+     */
+    public SessionTokenConfiguration getSessionTokens() {
+        return sessionTokens;
+    }
+
+    public LdapConfiguration setSessionTokens(SessionTokenConfiguration sessionTokens) {
+        this.sessionTokens = sessionTokens;
+        return this;
+    }
+
+    public LdapExecutorConfiguration getExecutor() {
+        return executor;
+    }
+
+    public LdapConfiguration setExecutor(LdapExecutorConfiguration executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public boolean isAsyncAuthentication() {
+        return asyncAuthentication;
+    }
+
+    public LdapConfiguration setAsyncAuthentication(boolean asyncAuthentication) {
+        this.asyncAuthentication = asyncAuthentication;
+        return this;
+    }
+
+    public Duration getAsyncAuthenticationTimeout() {
+        return asyncAuthenticationTimeout;
+    }
+
+    public LdapConfiguration setAsyncAuthenticationTimeout(Duration asyncAuthenticationTimeout) {
+        this.asyncAuthenticationTimeout = asyncAuthenticationTimeout;
+        return this;
+    }
+
+    /**
+     * Servlet URL patterns whose requests have their Basic credentials verified asynchronously. Every request
+     * matching them that carries credentials costs a bind, whether or not its resource requires authentication;
+     * protected resources outside them are still authenticated, on the request thread.
+     */
+    public List<String> getAsyncAuthenticationUrlPatterns() {
+        return asyncAuthenticationUrlPatterns;
+    }
+
+    public LdapConfiguration setAsyncAuthenticationUrlPatterns(List<String> asyncAuthenticationUrlPatterns) {
+        this.asyncAuthenticationUrlPatterns = asyncAuthenticationUrlPatterns;
+        return this;
+    }
+
+    public boolean isCoalesceConcurrentLogins() {
+        return coalesceConcurrentLogins;
+    }
+
+    public LdapConfiguration setCoalesceConcurrentLogins(boolean coalesceConcurrentLogins) {
+        this.coalesceConcurrentLogins = coalesceConcurrentLogins;
+        return this;
+    }
+
+    public Duration getCoalescingWaitTimeout() {
+        return coalescingWaitTimeout;
+    }
+
+    public LdapConfiguration setCoalescingWaitTimeout(Duration coalescingWaitTimeout) {
+        this.coalescingWaitTimeout = coalescingWaitTimeout;
+        return this;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.codahale.metrics.Timer;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.InterruptedNamingException;
+import javax.naming.LimitExceededException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of LDAP connections that are re-bound as each authenticating user, so a login costs one bind
+ * round trip instead of connect + TLS handshake + bind.
+ * <p>
+ * JNDI's own {@code com.sun.jndi.ldap.connect.pool} keys connections by principal, which makes it useless for
+ * user binds; connections handed out by this pool are never shared and are always re-bound before use.
+ */
+public class LdapConnectionPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapConnectionPool.class);
+
+    private final LdapConnectionPoolConfiguration configuration;
+    private final Supplier<Hashtable<String, String>> environment;
+    private final BlockingDeque<PooledDirContext> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private final Timer connectTimer;
+    private volatile boolean closed = false;
+
+    public LdapConnectionPool(LdapConnectionPoolConfiguration configuration,
+                              Supplier<Hashtable<String, String>> environment) {
+        this(configuration, environment, new Timer());
+    }
+
+    /**
+     * @param connectTimer times the opening of each new connection
+     */
+    public LdapConnectionPool(LdapConnectionPoolConfiguration configuration,
+                              Supplier<Hashtable<String, String>> environment, Timer connectTimer) {
+        this.configuration = checkNotNull(configuration);
+        this.environment = checkNotNull(environment);
+        this.connectTimer = checkNotNull(connectTimer);
+        checkArgument(configuration.getMinSize() <= configuration.getMaxSize(),
+                "minSize (%s) must not exceed maxSize (%s)", configuration.getMinSize(), configuration.getMaxSize());
+        this.permits = new Semaphore(configuration.getMaxSize(), true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ldap-connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = configuration.getEvictionInterval().toMilliseconds();
+        evictor.scheduleWithFixedDelay(this::evict, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection and binds it as {@code principal}. Closing the returned context releases it back
+     * to the pool.
+     */
+    public AutoclosingDirContext bind(String principal, String credentials) throws NamingException {
+        PooledDirContext context = borrow(true);
+        try {
+            context.bind(principal, credentials);
+            return context;
+        } catch (CommunicationException | ServiceUnavailableException e) {
+            if (!context.isReused()) {
+                discard(context);
+                throw e;
+            }
+            // the server may have dropped the idle connection; retry once on a fresh one under the same permit
+            destroy(context);
+            try {
+                context = create();
+            } catch (NamingException | RuntimeException createFailure) {
+                permits.release();
+                throw createFailure;
+            }
+        } catch (AuthenticationException e) {
+            // a rejected bind leaves the connection anonymous but perfectly usable
+            context.close();
+            throw e;
+        } catch (NamingException | RuntimeException e) {
+            discard(context);
+            throw e;
+        }
+        try {
+            context.bind(principal, credentials);
+            return context;
+        } catch (NamingException | RuntimeException e) {
+            context.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a connection as bound by the pool's own environment, e.g. a service account, without re-binding it.
+     * Closing it releases it back to the pool.
+     *
+     * @param reuseIdle {@code false} to skip idle connections and open a new one, e.g. after an idle one turned
+     *                  out to have been dropped by the server
+     */
+    PooledDirContext acquire(boolean reuseIdle) throws NamingException {
+        return borrow(reuseIdle);
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return configuration.getMaxSize() - permits.availablePermits();
+    }
+
+    private PooledDirContext borrow(boolean reuseIdle) throws NamingException {
+        if (closed) {
+            throw new ServiceUnavailableException("LDAP connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(configuration.getMaxWait().toMilliseconds(), TimeUnit.MILLISECONDS)) {
+                throw new LimitExceededException(String.format("Timed out after %s waiting for an LDAP connection",
+                        configuration.getMaxWait()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for an LDAP connection");
+        }
+        try {
+            PooledDirContext context;
+            while (reuseIdle && (context = idle.pollFirst()) != null) {
+                if (!configuration.isValidateOnBorrow() || context.isValid()) {
+                    context.markReused();
+                    return context;
+                }
+                destroy(context);
+            }
+            return create();
+        } catch (NamingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledDirContext create() throws NamingException {
+        final PooledDirContext context;
+        final Timer.Context timer = connectTimer.time();
+        try {
+            context = new PooledDirContext(this, environment.get());
+        } finally {
+            timer.stop();
+        }
+        size.incrementAndGet();
+        return context;
+    }
+
+    void release(PooledDirContext context) {
+        try {
+            if (closed || context.isBroken()) {
+                destroy(context);
+            } else {
+                idle.offerFirst(context);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledDirContext context) {
+        try {
+            destroy(context);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledDirContext context) {
+        size.decrementAndGet();
+        context.destroy();
+    }
+
+    private void evict() {
+        try {
+            final long idleTimeout = configuration.getIdleTimeout().toNanoseconds();
+            final long now = System.nanoTime();
+            final List<PooledDirContext> candidates = new ArrayList<>(idle);
+            for (PooledDirContext context : candidates) {
+                // a connection held out of idle for checking counts against maxSize like a borrowed one, or a
+                // borrower finding idle empty would open one more than the pool may hold
+                if (!permits.tryAcquire()) {
+                    break; // every permit is taken; the next run checks the rest
+                }
+                try {
+                    if (!idle.remove(context)) {
+                        continue; // borrowed in the meantime
+                    }
+                    final boolean expired = now - context.getLastReleasedNanos() > idleTimeout
+                            && size.get() > configuration.getMinSize();
+                    if (expired || (configuration.isValidateWhileIdle() && !context.isValid())) {
+                        destroy(context);
+                    } else {
+                        idle.offerLast(context);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+            while (!closed && size.get() < configuration.getMinSize() && permits.tryAcquire()) {
+                try {
+                    idle.offerLast(create());
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (NamingException e) {
+            LOG.warn("Unable to open LDAP connection to maintain the minimum pool size: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.error("Error while evicting idle LDAP connections", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledDirContext context;
+        while ((context = idle.pollFirst()) != null) {
+            destroy(context);
+        }
+    }
+}
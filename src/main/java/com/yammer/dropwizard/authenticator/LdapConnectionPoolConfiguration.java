@@ -0,0 +1,105 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class LdapConnectionPoolConfiguration {
+    private boolean enabled = false;
+
+    @Min(0)
+    private int minSize = 0;
+
+    @Min(1)
+    private int maxSize = 8;
+
+    @NotNull
+    @Valid
+    private Duration maxWait = Duration.milliseconds(500);
+
+    @NotNull
+    @Valid
+    private Duration idleTimeout = Duration.minutes(5);
+
+    @NotNull
+    @Valid
+    private Duration evictionInterval = Duration.seconds(30);
+
+    private boolean validateOnBorrow = false;
+
+    private boolean validateWhileIdle = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LdapConnectionPoolConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public LdapConnectionPoolConfiguration setMinSize(int minSize) {
+        this.minSize = minSize;
+        return this;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public LdapConnectionPoolConfiguration setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public LdapConnectionPoolConfiguration setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+        return this;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public LdapConnectionPoolConfiguration setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public LdapConnectionPoolConfiguration setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+        return this;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public LdapConnectionPoolConfiguration setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+        return this;
+    }
+
+    public boolean isValidateWhileIdle() {
+        return validateWhileIdle;
+    }
+
+    public LdapConnectionPoolConfiguration setValidateWhileIdle(boolean validateWhileIdle) {
+        this.validateWhileIdle = validateWhileIdle;
+        return this;
+    }
+}
@@ -0,0 +1,23 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.Collection;
+import javax.annotation.Nullable;
+import javax.naming.NamingException;
+
+/**
+ * An entry returned by a {@link LdapSession}, with only the attributes its search asked for.
+ */
+interface LdapEntry {
+    String getDn() throws NamingException;
+
+    /**
+     * The first value of {@code attribute}, or {@code null} if the entry does not have it.
+     */
+    @Nullable
+    String getValue(String attribute) throws NamingException;
+
+    /**
+     * Every value of {@code attribute}; empty if the entry does not have it.
+     */
+    Collection<String> getValues(String attribute) throws NamingException;
+}
@@ -0,0 +1,41 @@
+package com.yammer.dropwizard.authenticator;
+
+import javax.validation.constraints.Min;
+
+@SuppressWarnings("unused")
+public class LdapExecutorConfiguration {
+    @Min(1)
+    private int threads = 16;
+
+    @Min(0)
+    private int queueSize = 256;
+
+    private boolean virtualThreads = false;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public LdapExecutorConfiguration setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public LdapExecutorConfiguration setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public LdapExecutorConfiguration setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+}
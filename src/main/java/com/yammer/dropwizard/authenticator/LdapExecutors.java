@@ -0,0 +1,131 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the bounded executor that runs blocking LDAP I/O off the request threads.
+ */
+public final class LdapExecutors {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapExecutors.class);
+
+    private LdapExecutors() {
+    }
+
+    /**
+     * At most {@code threads} LDAP operations run at once and at most {@code queueSize} more wait for a slot;
+     * anything beyond that is rejected with a {@link RejectedExecutionException}. When virtual threads are
+     * requested and the runtime supports them (Java 21+), every task gets its own virtual thread and the same
+     * bounds are enforced with semaphores.
+     */
+    public static ExecutorService create(LdapExecutorConfiguration configuration, String name) {
+        if (configuration.isVirtualThreads()) {
+            final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+            if (virtualThreads != null) {
+                return new BoundedExecutorService(virtualThreads, configuration.getThreads(), configuration.getQueueSize());
+            }
+            LOG.warn("Virtual threads are not supported by this JVM ({}); using platform threads for {}",
+                    System.getProperty("java.version"), name);
+        }
+        final BlockingQueue<Runnable> queue = configuration.getQueueSize() == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(configuration.getQueueSize());
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(configuration.getThreads(), configuration.getThreads(),
+                60, TimeUnit.SECONDS, queue, daemonThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static ThreadFactory daemonThreadFactory(String name) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class BoundedExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore admitted;
+        private final Semaphore running;
+
+        BoundedExecutorService(ExecutorService delegate, int threads, int queueSize) {
+            this.delegate = delegate;
+            this.admitted = new Semaphore(threads + queueSize);
+            this.running = new Semaphore(threads);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (!admitted.tryAcquire()) {
+                throw new RejectedExecutionException("LDAP executor is saturated");
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        running.acquire();
+                        try {
+                            command.run();
+                        } finally {
+                            running.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        admitted.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                admitted.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
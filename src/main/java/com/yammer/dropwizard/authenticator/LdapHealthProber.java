@@ -0,0 +1,190 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.naming.NamingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the root DSE of every configured server on a fixed schedule over one long-lived anonymous connection per
+ * server, and keeps the outcome of the latest probe. Health checks report these results instead of contacting
+ * LDAP themselves, so however often they are polled the directory sees one cheap read per server per interval.
+ */
+public class LdapHealthProber implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapHealthProber.class);
+    private static final String[] ROOT_DSE_ATTRIBUTES = {"supportedLDAPVersion"};
+
+    /**
+     * Opens an anonymous connection to {@code server} that fails within the probe timeout.
+     */
+    @FunctionalInterface
+    public interface Connector {
+        AutoclosingDirContext connect(URI server) throws NamingException;
+    }
+
+    public static final class ServerStatus {
+        private final URI server;
+        private final boolean replica;
+        private final boolean up;
+        private final long latencyNanos;
+        private final long lastSuccessNanos;
+        @Nullable
+        private final String error;
+
+        ServerStatus(URI server, boolean replica, boolean up, long latencyNanos, long lastSuccessNanos,
+                     @Nullable String error) {
+            this.server = server;
+            this.replica = replica;
+            this.up = up;
+            this.latencyNanos = latencyNanos;
+            this.lastSuccessNanos = lastSuccessNanos;
+            this.error = error;
+        }
+
+        public URI getServer() {
+            return server;
+        }
+
+        /**
+         * Whether this is a search-only replica, rather than a server users bind against.
+         */
+        public boolean isReplica() {
+            return replica;
+        }
+
+        /**
+         * Whether the latest probe succeeded.
+         */
+        public boolean isUp() {
+            return up;
+        }
+
+        /**
+         * Duration of the latest successful probe.
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * {@link System#nanoTime()} of the latest successful probe, or {@code 0} if none succeeded yet.
+         */
+        public long getLastSuccessNanos() {
+            return lastSuccessNanos;
+        }
+
+        @Nullable
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final class Target {
+        private final URI server;
+        private final boolean replica;
+        @Nullable
+        private AutoclosingDirContext context;
+        private volatile ServerStatus status;
+
+        Target(URI server, boolean replica) {
+            this.server = server;
+            this.replica = replica;
+            this.status = new ServerStatus(server, replica, false, 0, 0, "not probed yet");
+        }
+
+        void probe() {
+            final long start = System.nanoTime();
+            try {
+                if (context == null) {
+                    context = connector.connect(server);
+                }
+                context.getAttributes("", ROOT_DSE_ATTRIBUTES);
+                final long now = System.nanoTime();
+                if (!status.isUp() && status.getLastSuccessNanos() != 0) {
+                    LOG.info("LDAP server {} is answering health probes again", server);
+                }
+                status = new ServerStatus(server, replica, true, now - start, now, null);
+            } catch (NamingException | RuntimeException e) {
+                if (status.isUp()) {
+                    LOG.warn("LDAP server {} failed its health probe: {}", server, e.getMessage());
+                }
+                status = new ServerStatus(server, replica, false, status.getLatencyNanos(),
+                        status.getLastSuccessNanos(), String.valueOf(e.getMessage()));
+                disconnect();
+            }
+        }
+
+        void disconnect() {
+            if (context != null) {
+                try {
+                    context.close();
+                } catch (NamingException ignored) {
+                    // reconnecting on the next probe
+                }
+                context = null;
+            }
+        }
+    }
+
+    private final Connector connector;
+    private final List<Target> targets;
+    private final long maxStalenessNanos;
+    private final ScheduledExecutorService scheduler;
+
+    public LdapHealthProber(HealthProbeConfiguration configuration, List<URI> servers, List<URI> replicas,
+                            Connector connector) {
+        this.connector = checkNotNull(connector);
+        final List<Target> targets = new ArrayList<>(servers.size() + replicas.size());
+        for (URI server : servers) {
+            targets.add(new Target(server, false));
+        }
+        for (URI replica : replicas) {
+            targets.add(new Target(replica, true));
+        }
+        this.targets = ImmutableList.copyOf(targets);
+        this.maxStalenessNanos = configuration.getMaxStaleness().toNanoseconds();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(LdapExecutors.daemonThreadFactory("ldap-health-probe"));
+        final long interval = configuration.getInterval().toMilliseconds();
+        scheduler.scheduleWithFixedDelay(this::probe, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void probe() {
+        for (Target target : targets) {
+            target.probe();
+        }
+    }
+
+    public List<ServerStatus> getStatuses() {
+        final List<ServerStatus> statuses = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            statuses.add(target.status);
+        }
+        return statuses;
+    }
+
+    /**
+     * Whether {@code status} comes from a successful probe recent enough to be trusted.
+     */
+    public boolean isHealthy(ServerStatus status) {
+        return status.isUp() && System.nanoTime() - status.getLastSuccessNanos() <= maxStalenessNanos;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            for (Target target : targets) {
+                target.disconnect();
+            }
+        }
+    }
+}
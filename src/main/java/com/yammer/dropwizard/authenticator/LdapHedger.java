@@ -0,0 +1,229 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.google.common.base.Throwables;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+
+/**
+ * Runs idempotent operations against a {@link LdapServerSet}, asking a second server when the first has not
+ * answered within the hedge delay, and returning whichever answer comes first. The delay is either fixed or the
+ * configured percentile of recently observed latencies; a token budget earned by every operation caps how many
+ * hedges are sent. Only use this for reads whose repetition is harmless: a hedged bind would count twice
+ * against lockout policies.
+ * <p>
+ * Attempts run on a small dedicated pool. When it is busy, or fewer than two servers are in rotation, the
+ * operation runs on the calling thread exactly as {@link LdapServerSet#execute(LdapServerSet.Operation)} would.
+ */
+public class LdapHedger implements AutoCloseable {
+    private static final int LATENCY_SAMPLES = 1024;
+    private static final int MINIMUM_SAMPLES = 100;
+    private static final long RECOMPUTE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long NO_HEDGE = -1;
+    // budget tokens are kept in thousandths so fractional percentages add up
+    private static final long HEDGE_COST = 1000;
+
+    private final boolean enabled;
+    private final long fixedDelayNanos;
+    private final double quantile;
+    private final long minimumDelayNanos;
+    private final long depositPerOperation;
+    private final long maximumTokens;
+    private final AtomicLong tokens;
+    private final ExecutorService executor;
+    private final Reservoir latencies = new SlidingWindowReservoir(LATENCY_SAMPLES);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private volatile boolean delayComputed;
+    private volatile long percentileDelayNanos;
+    private volatile long computedAtNanos;
+
+    public LdapHedger(HedgingConfiguration configuration) {
+        this.enabled = configuration.isEnabled();
+        this.fixedDelayNanos = configuration.getDelay().toNanoseconds();
+        this.quantile = configuration.getPercentile() / 100;
+        this.minimumDelayNanos = configuration.getMinimumDelay().toNanoseconds();
+        this.depositPerOperation = Math.round(configuration.getBudgetPercent() * HEDGE_COST / 100);
+        this.maximumTokens = configuration.getBudgetBurst() * HEDGE_COST;
+        this.tokens = new AtomicLong(maximumTokens);
+        this.executor = enabled
+                ? LdapExecutors.create(new LdapExecutorConfiguration()
+                        .setThreads(configuration.getThreads())
+                        .setQueueSize(0), "ldap-hedge")
+                : null;
+    }
+
+    public <T> T execute(LdapServerSet servers, LdapServerSet.Operation<T> operation) throws NamingException {
+        final List<LdapServer> order = servers.attemptOrder();
+        if (!enabled || order.size() < 2) {
+            return servers.execute(order, operation);
+        }
+        deposit();
+        final Race<T> race = new Race<>(servers, operation);
+        if (!race.start(order.get(0), false)) {
+            return servers.execute(order, operation);
+        }
+        int next = 1;
+        try {
+            final long delayNanos = hedgeDelayNanos();
+            if (delayNanos != NO_HEDGE) {
+                try {
+                    return race.winner.get(delayNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (withdraw()) {
+                        if (race.start(order.get(1), true)) {
+                            sent.increment();
+                            next = 2;
+                        } else {
+                            refund();
+                        }
+                    }
+                }
+            }
+            return race.winner.get();
+        } catch (ExecutionException e) {
+            if (race.exhausted() && next < order.size()) {
+                // every server raced was unreachable: fail over to the rest one at a time, as usual
+                return servers.execute(order.subList(next, order.size()), operation);
+            }
+            final Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, NamingException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedNamingException interrupted = new InterruptedNamingException("Interrupted waiting for LDAP");
+            interrupted.setRootCause(e);
+            throw interrupted;
+        }
+    }
+
+    public long getHedgesSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Hedges that answered before the server first asked.
+     */
+    public long getHedgesWon() {
+        return won.sum();
+    }
+
+    private long hedgeDelayNanos() {
+        if (fixedDelayNanos > 0) {
+            return fixedDelayNanos;
+        }
+        final long now = System.nanoTime();
+        if (!delayComputed || now - computedAtNanos >= RECOMPUTE_NANOS) {
+            percentileDelayNanos = latencies.size() < MINIMUM_SAMPLES
+                    ? NO_HEDGE
+                    : Math.max(minimumDelayNanos, (long) latencies.getSnapshot().getValue(quantile));
+            computedAtNanos = now;
+            delayComputed = true;
+        }
+        return percentileDelayNanos;
+    }
+
+    private void deposit() {
+        tokens.accumulateAndGet(depositPerOperation, (current, deposit) -> Math.min(maximumTokens, current + deposit));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    private void refund() {
+        tokens.accumulateAndGet(HEDGE_COST, (current, deposit) -> Math.min(maximumTokens, current + deposit));
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The attempts of one operation. The first answer wins, unless it is a server failure and another attempt is
+     * still running.
+     */
+    private final class Race<T> {
+        private final LdapServerSet servers;
+        private final LdapServerSet.Operation<T> operation;
+        private final CompletableFuture<T> winner = new CompletableFuture<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicBoolean decided = new AtomicBoolean();
+        private volatile boolean exhausted;
+
+        Race(LdapServerSet servers, LdapServerSet.Operation<T> operation) {
+            this.servers = servers;
+            this.operation = operation;
+        }
+
+        boolean start(LdapServer server, boolean hedge) {
+            if (winner.isDone()) {
+                return false;
+            }
+            running.incrementAndGet();
+            try {
+                executor.execute(() -> run(server, hedge));
+                return true;
+            } catch (RejectedExecutionException e) {
+                running.decrementAndGet();
+                return false;
+            }
+        }
+
+        boolean exhausted() {
+            return exhausted;
+        }
+
+        private void run(LdapServer server, boolean hedge) {
+            final long start = System.nanoTime();
+            try {
+                final T result = servers.attempt(server, operation);
+                latencies.update(System.nanoTime() - start);
+                if (decided.compareAndSet(false, true)) {
+                    if (hedge) {
+                        won.increment();
+                    }
+                    winner.complete(result);
+                }
+            } catch (NamingException e) {
+                if (!LdapServerSet.isServerFailure(e)) {
+                    fail(e);
+                } else if (running.decrementAndGet() == 0) {
+                    exhausted = true;
+                    fail(e);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Exception e) {
+            if (decided.compareAndSet(false, true)) {
+                winner.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The metrics {@link LdapAuthenticator} reports, all named under a prefix that defaults to
+ * {@code com.yammer.dropwizard.authenticator.LdapAuthenticator}. Each authenticator sharing a registry needs a
+ * prefix of its own; reusing one that is still registered fails rather than mixing two authenticators' numbers.
+ * <ul>
+ *     <li>{@code connect}, {@code bind} and {@code search.<type>} timers. An unpooled bind includes opening its
+ *     connection.</li>
+ *     <li>{@code auth.success}, {@code auth.failure} (rejected credentials or no permitted group) and
+ *     {@code auth.error} (the directory could not answer) counters.</li>
+ *     <li>{@code group-cache.*} statistics, {@code in-flight} operations, per-server gauges, per-server
+ *     {@code pool.*} and {@code search-pool.*} gauges and {@code circuit-breaker.open}.</li>
+ *     <li>{@code hedge.sent} and {@code hedge.won}: second attempts of group searches, and those that answered
+ *     first.</li>
+ * </ul>
+ */
+public class LdapMetrics {
+    public static final String DEFAULT_PREFIX = name(LdapAuthenticator.class);
+
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Timer connect;
+    private final Timer bind;
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter errors;
+
+    public LdapMetrics(MetricRegistry registry) {
+        this(registry, DEFAULT_PREFIX);
+    }
+
+    public LdapMetrics(MetricRegistry registry, String prefix) {
+        this.registry = checkNotNull(registry);
+        this.prefix = checkNotNull(prefix);
+        checkState(registry.getNames().stream().noneMatch(this::isOwn),
+                "Metrics under %s are already registered by another LdapAuthenticator; give this one its own prefix",
+                prefix);
+        this.connect = registry.timer(name(prefix, "connect"));
+        this.bind = registry.timer(name(prefix, "bind"));
+        this.successes = registry.counter(name(prefix, "auth", "success"));
+        this.failures = registry.counter(name(prefix, "auth", "failure"));
+        this.errors = registry.counter(name(prefix, "auth", "error"));
+    }
+
+    public Timer getConnect() {
+        return connect;
+    }
+
+    public Timer getBind() {
+        return bind;
+    }
+
+    Timer search(SearchPlan plan) {
+        return registry.timer(name(prefix, "search", plan.getName()));
+    }
+
+    void recordSuccess() {
+        successes.inc();
+    }
+
+    void recordFailure() {
+        failures.inc();
+    }
+
+    void recordError() {
+        errors.inc();
+    }
+
+    void registerGroupCache(Cache<?, ?> cache) {
+        registerCache(registry, name(prefix, "group-cache"), cache);
+        registry.gauge(name(prefix, "group-cache", "weight"), () -> (Gauge<Long>) () -> cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L));
+    }
+
+    void registerServers(Collection<LdapServer> servers) {
+        registry.gauge(name(prefix, "in-flight"), () -> (Gauge<Integer>) () ->
+                servers.stream().mapToInt(LdapServer::getOutstanding).sum());
+        for (LdapServer server : servers) {
+            final String serverPrefix = name(prefix, "server", server.getUri().getAuthority());
+            registry.gauge(name(serverPrefix, "in-flight"), () -> (Gauge<Integer>) server::getOutstanding);
+            registry.gauge(name(serverPrefix, "latency"), () -> (Gauge<Double>) server::getLatencyNanos);
+            registry.gauge(name(serverPrefix, "healthy"), () -> (Gauge<Boolean>) server::isHealthy);
+        }
+    }
+
+    void registerPools(Map<LdapServer, LdapConnectionPool> pools) {
+        registerPools("pool", pools);
+    }
+
+    void registerSearchPools(Map<LdapServer, LdapConnectionPool> pools) {
+        registerPools("search-pool", pools);
+    }
+
+    private void registerPools(String type, Map<LdapServer, LdapConnectionPool> pools) {
+        pools.forEach((server, pool) -> {
+            final String poolPrefix = name(prefix, type, server.getUri().getAuthority());
+            registry.gauge(name(poolPrefix, "size"), () -> (Gauge<Integer>) pool::getSize);
+            registry.gauge(name(poolPrefix, "idle"), () -> (Gauge<Integer>) pool::getIdleCount);
+            registry.gauge(name(poolPrefix, "active"), () -> (Gauge<Integer>) pool::getActiveCount);
+        });
+    }
+
+    void registerHedger(LdapHedger hedger) {
+        registry.gauge(name(prefix, "hedge", "sent"), () -> (Gauge<Long>) hedger::getHedgesSent);
+        registry.gauge(name(prefix, "hedge", "won"), () -> (Gauge<Long>) hedger::getHedgesWon);
+    }
+
+    void registerCircuitBreaker(LdapCircuitBreaker circuitBreaker) {
+        registry.gauge(name(prefix, "circuit-breaker", "open"), () -> (Gauge<Boolean>) () ->
+                circuitBreaker.getState() != LdapCircuitBreaker.State.CLOSED);
+    }
+
+    /**
+     * Removes every metric registered under this prefix, so another authenticator can take it over.
+     */
+    void unregister() {
+        registry.removeMatching((metricName, metric) -> isOwn(metricName));
+    }
+
+    private boolean isOwn(String metricName) {
+        return metricName.startsWith(prefix + ".");
+    }
+
+    /**
+     * Registers hit, miss, eviction, load time and size gauges for a cache built with {@code recordStats()}.
+     */
+    static void registerCache(MetricRegistry registry, String prefix, Cache<?, ?> cache) {
+        registry.gauge(name(prefix, "hits"), () -> (Gauge<Long>) () -> cache.stats().hitCount());
+        registry.gauge(name(prefix, "misses"), () -> (Gauge<Long>) () -> cache.stats().missCount());
+        registry.gauge(name(prefix, "evictions"), () -> (Gauge<Long>) () -> cache.stats().evictionCount());
+        registry.gauge(name(prefix, "load-failures"), () -> (Gauge<Long>) () -> cache.stats().loadFailureCount());
+        registry.gauge(name(prefix, "load-time"), () -> (Gauge<Double>) () -> cache.stats().averageLoadPenalty());
+        registry.gauge(name(prefix, "size"), () -> (Gauge<Long>) cache::estimatedSize);
+        registry.gauge(name(prefix, "hit-ratio"), () -> new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                final CacheStats stats = cache.stats();
+                return Ratio.of(stats.hitCount(), stats.requestCount());
+            }
+        });
+    }
+}
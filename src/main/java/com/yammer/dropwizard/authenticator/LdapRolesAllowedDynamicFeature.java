@@ -12,6 +12,7 @@ import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.DynamicFeature;
 import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.SecurityContext;
 import org.glassfish.jersey.server.internal.LocalizationMessages;
 import org.glassfish.jersey.server.model.AnnotatedMethod;
 
@@ -49,20 +50,29 @@ public class LdapRolesAllowedDynamicFeature implements DynamicFeature {
         }
     }
 
+    /**
+     * Role names are interned to ids when the filter is created, so checking a request the bundle authenticated
+     * (an {@link LdapSecurityContext}) is a bitwise AND of the user's role bitset with {@link #rolesMask}. Any
+     * other request, an {@link LdapUser} authenticated with a custom authorizer included, is checked role by role
+     * through its security context.
+     */
     @Priority(Priorities.AUTHORIZATION) // authorization filter - should go after any authentication filters
     private static class RolesAllowedRequestFilter implements ContainerRequestFilter {
 
         private final boolean denyAll;
         private final String[] rolesAllowed;
+        private final long[] rolesMask;
 
         RolesAllowedRequestFilter() {
             this.denyAll = true;
             this.rolesAllowed = null;
+            this.rolesMask = null;
         }
 
         RolesAllowedRequestFilter(final String[] rolesAllowed) {
             this.denyAll = false;
             this.rolesAllowed = (rolesAllowed != null) ? rolesAllowed : new String[] {};
+            this.rolesMask = RoleIds.register(this.rolesAllowed);
         }
 
         private static boolean isAuthenticated(final ContainerRequestContext requestContext) {
@@ -76,8 +86,16 @@ public class LdapRolesAllowedDynamicFeature implements DynamicFeature {
                     throw new ForbiddenException(LocalizationMessages.USER_NOT_AUTHORIZED());
                 }
 
+                final SecurityContext securityContext = requestContext.getSecurityContext();
+                if (securityContext instanceof LdapSecurityContext) {
+                    if (((LdapSecurityContext) securityContext).isUserInAnyRole(rolesMask)) {
+                        return;
+                    }
+                    throw new ForbiddenException(LocalizationMessages.USER_NOT_AUTHORIZED());
+                }
+
                 for (final String role : rolesAllowed) {
-                    if (requestContext.getSecurityContext().isUserInRole(role)) {
+                    if (securityContext.isUserInRole(role)) {
                         return;
                     }
                 }
@@ -0,0 +1,48 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * The security context of a request the bundle authenticated, where a user is in a role exactly when the role is
+ * one of their groups. Because that is all an authorization decision depends on, {@code @LdapRolesAllowed} can
+ * check the user's role bitset directly instead of asking about each allowed role in turn. Requests authenticated
+ * with any other {@link io.dropwizard.auth.Authorizer} keep their own security context and are checked through it.
+ */
+public final class LdapSecurityContext implements SecurityContext {
+    private final LdapUser user;
+    private final SecurityContext authenticated;
+
+    public LdapSecurityContext(LdapUser user, SecurityContext authenticated) {
+        this.user = checkNotNull(user);
+        this.authenticated = checkNotNull(authenticated);
+    }
+
+    @Override
+    public LdapUser getUserPrincipal() {
+        return user;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return user.getRoles().contains(role);
+    }
+
+    /**
+     * Whether the user is in any of the roles in {@code mask}, a bitset from {@link RoleIds#register(String...)}.
+     */
+    boolean isUserInAnyRole(long[] mask) {
+        return user.hasAnyRole(mask);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return authenticated.isSecure();
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return authenticated.getAuthenticationScheme();
+    }
+}
@@ -0,0 +1,34 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * Runs the bundle's authentication filter and, once it has authenticated an {@link LdapUser}, replaces the
+ * security context with an {@link LdapSecurityContext}. Only wrap filters whose authorizer grants exactly the
+ * user's groups.
+ */
+@Priority(Priorities.AUTHENTICATION)
+class LdapSecurityContextFilter implements ContainerRequestFilter {
+    private final ContainerRequestFilter authFilter;
+
+    LdapSecurityContextFilter(ContainerRequestFilter authFilter) {
+        this.authFilter = checkNotNull(authFilter);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        authFilter.filter(requestContext);
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        if (securityContext != null && securityContext.getUserPrincipal() instanceof LdapUser) {
+            requestContext.setSecurityContext(
+                    new LdapSecurityContext((LdapUser) securityContext.getUserPrincipal(), securityContext));
+        }
+    }
+}
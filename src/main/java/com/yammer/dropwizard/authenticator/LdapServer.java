@@ -0,0 +1,101 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One directory server and what has been observed about it from real traffic: operations in flight, a smoothed
+ * latency and consecutive failures. After {@link ServerSelectionConfiguration#getFailureThreshold()} consecutive
+ * failures the server leaves rotation for {@link ServerSelectionConfiguration#getRetryInterval()}, after which a
+ * single operation is let through to probe it.
+ */
+public final class LdapServer {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapServer.class);
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final URI uri;
+    private final int failureThreshold;
+    private final long retryIntervalNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong retryAtNanos = new AtomicLong();
+    private double latencyNanos = 0;
+
+    public LdapServer(URI uri, ServerSelectionConfiguration configuration) {
+        this.uri = checkNotNull(uri);
+        this.failureThreshold = configuration.getFailureThreshold();
+        this.retryIntervalNanos = configuration.getRetryInterval().toNanoseconds();
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Exponentially smoothed latency of recent operations, or {@code 0} before the first one completes.
+     */
+    public synchronized double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public boolean isHealthy() {
+        return consecutiveFailures.get() < failureThreshold;
+    }
+
+    /**
+     * Whether the server may be attempted. Once a server out of rotation is due for a retry, only the caller that
+     * moves its retry time on by another interval is told it is available, so a single operation probes it.
+     */
+    boolean isAvailable(long nowNanos) {
+        if (isHealthy()) {
+            return true;
+        }
+        final long retryAt = retryAtNanos.get();
+        return nowNanos - retryAt >= 0 && retryAtNanos.compareAndSet(retryAt, nowNanos + retryIntervalNanos);
+    }
+
+    long getRetryAtNanos() {
+        return retryAtNanos.get();
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordSuccess(long elapsedNanos) {
+        synchronized (this) {
+            latencyNanos = latencyNanos == 0 ? elapsedNanos : latencyNanos + LATENCY_SMOOTHING * (elapsedNanos - latencyNanos);
+        }
+        if (consecutiveFailures.getAndSet(0) >= failureThreshold) {
+            LOG.info("LDAP server {} is responding again; returning it to rotation", uri);
+        }
+    }
+
+    void recordFailure(long nowNanos) {
+        final int failures = consecutiveFailures.incrementAndGet();
+        if (failures >= failureThreshold) {
+            retryAtNanos.set(nowNanos + retryIntervalNanos);
+            if (failures == failureThreshold) {
+                LOG.warn("LDAP server {} failed {} times in a row; taking it out of rotation", uri, failures);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads operations over a set of directory servers and fails over when one cannot be reached. The preferred
+ * servers are load balanced with the configured {@link ServerSelectionStrategy}; fallback servers are only tried
+ * once every preferred server has failed the operation or is out of rotation.
+ */
+public class LdapServerSet {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapServerSet.class);
+
+    private final List<LdapServer> preferred;
+    private final List<LdapServer> fallback;
+    private final ServerSelectionStrategy strategy;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @FunctionalInterface
+    public interface Operation<T> {
+        T apply(LdapServer server) throws NamingException;
+    }
+
+    public LdapServerSet(List<LdapServer> preferred, List<LdapServer> fallback, ServerSelectionStrategy strategy) {
+        checkArgument(!preferred.isEmpty(), "at least one LDAP server is required");
+        this.preferred = ImmutableList.copyOf(preferred);
+        this.fallback = ImmutableList.copyOf(fallback);
+        this.strategy = strategy;
+    }
+
+    public List<LdapServer> getServers() {
+        return preferred;
+    }
+
+    /**
+     * Runs {@code operation} against one server after another until it completes or fails with something other
+     * than a connectivity problem. Each server is tried at most once.
+     */
+    public <T> T execute(Operation<T> operation) throws NamingException {
+        return execute(attemptOrder(), operation);
+    }
+
+    <T> T execute(List<LdapServer> order, Operation<T> operation) throws NamingException {
+        NamingException lastFailure = null;
+        for (LdapServer server : order) {
+            try {
+                return attempt(server, operation);
+            } catch (NamingException e) {
+                if (!isServerFailure(e)) {
+                    throw e;
+                }
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Runs {@code operation} against {@code server} alone, recording its latency or its failure.
+     */
+    <T> T attempt(LdapServer server, Operation<T> operation) throws NamingException {
+        final long start = System.nanoTime();
+        server.begin();
+        try {
+            final T result = operation.apply(server);
+            server.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (NamingException e) {
+            if (!isServerFailure(e)) {
+                server.recordSuccess(System.nanoTime() - start); // the server answered, just not the way we hoped
+                throw e;
+            }
+            server.recordFailure(System.nanoTime());
+            LOG.warn("LDAP server {} is unreachable: {}", server, e.getMessage());
+            throw e;
+        } finally {
+            server.end();
+        }
+    }
+
+    List<LdapServer> attemptOrder() {
+        final long now = System.nanoTime();
+        final List<LdapServer> order = new ArrayList<>(preferred.size() + fallback.size());
+        final List<LdapServer> unavailable = new ArrayList<>();
+        final List<LdapServer> candidates = new ArrayList<>(preferred.size());
+        for (LdapServer server : preferred) {
+            (server.isAvailable(now) ? candidates : unavailable).add(server);
+        }
+        if (!candidates.isEmpty()) {
+            final LdapServer first = strategy.choose(candidates, sequence.getAndIncrement());
+            order.add(first);
+            final int offset = candidates.indexOf(first);
+            for (int i = 1; i < candidates.size(); i++) {
+                order.add(candidates.get((offset + i) % candidates.size()));
+            }
+        }
+        for (LdapServer server : fallback) {
+            (server.isAvailable(now) ? order : unavailable).add(server);
+        }
+        // as a last resort, try servers that are out of rotation, those due back soonest first
+        unavailable.sort(Comparator.comparingLong(server -> server.getRetryAtNanos() - now));
+        order.addAll(unavailable);
+        return order;
+    }
+
+    /**
+     * Whether {@code e} says the server could not be reached or did not answer in time, as opposed to the
+     * server rejecting the request. Decided by the exception's type, then by an I/O failure among its causes, and
+     * only as a last resort by the JDK provider's (English) messages.
+     */
+    static boolean isServerFailure(NamingException e) {
+        if (e instanceof CommunicationException || e instanceof ServiceUnavailableException) {
+            return true;
+        }
+        Throwable cause = e.getRootCause() != null ? e.getRootCause() : e.getCause();
+        for (int depth = 0; cause != null && depth < 10; depth++) {
+            if (cause instanceof IOException || cause instanceof CommunicationException
+                    || cause instanceof ServiceUnavailableException) {
+                return true;
+            }
+            final Throwable next = cause instanceof NamingException ? ((NamingException) cause).getRootCause() : null;
+            cause = next != null ? next : cause.getCause();
+        }
+        // JNDI reports read timeouts, and connections the server has closed, as a plain NamingException
+        return e.getClass() == NamingException.class && e.getMessage() != null
+                && (e.getMessage().startsWith("LDAP response read timed out")
+                        || e.getMessage().startsWith("LDAP connection has been closed"));
+    }
+}
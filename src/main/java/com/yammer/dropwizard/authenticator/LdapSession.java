@@ -0,0 +1,41 @@
+package com.yammer.dropwizard.authenticator;
+
+import javax.naming.NamingException;
+
+/**
+ * Operations against one directory server as one identity: a user who has just bound, or the account group
+ * searches run as. Failures are reported as {@link NamingException}s whatever the {@link LdapClient}, so
+ * {@link LdapServerSet} and {@link LdapCircuitBreaker} classify them the same way.
+ */
+interface LdapSession extends AutoCloseable {
+    @FunctionalInterface
+    interface EntryHandler {
+        void accept(LdapEntry entry) throws NamingException;
+    }
+
+    /**
+     * Hands every entry {@code plan} finds with {@code filter} to {@code handler}, fetching them {@code pageSize}
+     * at a time if it is positive. Hitting the plan's count limit keeps the entries already handed over if the plan
+     * is {@link SearchPlan#isTruncatable() truncatable} and fails with a
+     * {@link javax.naming.SizeLimitExceededException} otherwise.
+     */
+    void search(SearchPlan plan, String filter, int pageSize, EntryHandler handler) throws NamingException;
+
+    /**
+     * Whether {@code plan} finds at least one entry with {@code filter}.
+     */
+    boolean exists(SearchPlan plan, String filter) throws NamingException;
+
+    /**
+     * The entry at {@code dn}, with {@code attributes} only.
+     */
+    LdapEntry read(String dn, String[] attributes) throws NamingException;
+
+    /**
+     * Whether the entry at {@code dn} has {@code value} among its {@code attribute} values.
+     */
+    boolean compare(String dn, String attribute, String value) throws NamingException;
+
+    @Override
+    void close();
+}
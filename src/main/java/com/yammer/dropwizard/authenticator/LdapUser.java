@@ -7,6 +7,22 @@ public class LdapUser implements Principal {
 
     private final String name;
     private final Set<String> roles;
+    private volatile RoleBits roleBits = RoleBits.NONE;
+
+    /**
+     * {@link #roles} as a bitset of {@link RoleIds}, and the id generation it was built for.
+     */
+    private static final class RoleBits {
+        static final RoleBits NONE = new RoleBits(-1, new long[0]);
+
+        final int generation;
+        final long[] bits;
+
+        RoleBits(int generation, long[] bits) {
+            this.generation = generation;
+            this.bits = bits;
+        }
+    }
 
     public LdapUser(String name, Set<String> roles) {
         this.name = name;
@@ -20,4 +36,18 @@ public class LdapUser implements Principal {
     public Set<String> getRoles() {
         return roles;
     }
+
+    /**
+     * Whether this user has any of the roles in {@code mask}, a bitset from {@link RoleIds#register(String...)}.
+     * The user's own bitset is built on first use and only rebuilt when new role ids are registered.
+     */
+    boolean hasAnyRole(long[] mask) {
+        RoleBits current = roleBits;
+        final int generation = RoleIds.generation();
+        if (current.generation != generation) {
+            current = new RoleBits(generation, RoleIds.lookup(roles));
+            roleBits = current;
+        }
+        return RoleIds.intersects(current.bits, mask);
+    }
 }
@@ -0,0 +1,61 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class NestedGroupConfiguration {
+    private boolean enabled = false;
+
+    @NotNull
+    @Valid
+    private Duration refreshInterval = Duration.minutes(5);
+
+    @NotNull
+    @Valid
+    private Duration maxStaleness = Duration.minutes(30);
+
+    private boolean subgroupsByName = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public NestedGroupConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public NestedGroupConfiguration setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public NestedGroupConfiguration setMaxStaleness(Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+        return this;
+    }
+
+    /**
+     * Whether a member value that is not a DN but equals a group's name makes that group a subgroup. Off by
+     * default: with name-valued attributes such as {@code memberUid} it cannot tell a user from a group of the
+     * same name, and would hand that group's members the user's memberships.
+     */
+    public boolean isSubgroupsByName() {
+        return subgroupsByName;
+    }
+
+    public NestedGroupConfiguration setSubgroupsByName(boolean subgroupsByName) {
+        this.subgroupsByName = subgroupsByName;
+        return this;
+    }
+}
@@ -0,0 +1,94 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.io.IOException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.SizeLimitExceededException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs searches with the RFC 2696 simple paged results control and hands each entry to a callback as it is
+ * read, so large result sets are neither truncated by server size limits nor materialized in one piece.
+ * The control is sent as non-critical: servers that do not support paging return everything in one go.
+ * Paging splits a result by entries, not by the values of an attribute; multi-valued attributes larger than the
+ * server's per-attribute limit would need ranged retrieval ({@code member;range=0-1499}), which is not done here.
+ */
+final class PagedSearch {
+    private static final Logger LOG = LoggerFactory.getLogger(PagedSearch.class);
+
+    @FunctionalInterface
+    interface ResultHandler {
+        void accept(SearchResult result) throws NamingException;
+    }
+
+    private PagedSearch() {
+    }
+
+    static void forEach(AutoclosingDirContext context, SearchPlan plan, String filter, int pageSize,
+                        ResultHandler handler) throws NamingException {
+        final String base = plan.getBase();
+        final SearchControls controls = plan.getControls();
+        if (pageSize <= 0) {
+            consume(context.search(base, filter, controls), plan, filter, handler);
+            return;
+        }
+        final LdapContext ldapContext = context.ldapContext();
+        final Control[] previousControls = ldapContext.getRequestControls();
+        byte[] cookie = null;
+        try {
+            do {
+                ldapContext.setRequestControls(new Control[] {new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL)});
+                if (!consume(context.search(base, filter, controls), plan, filter, handler)) {
+                    break;
+                }
+                cookie = nextCookie(ldapContext.getResponseControls());
+            } while (cookie != null && cookie.length > 0);
+        } catch (IOException e) {
+            final NamingException namingException = new NamingException("Unable to encode the paged results control");
+            namingException.setRootCause(e);
+            throw namingException;
+        } finally {
+            ldapContext.setRequestControls(previousControls);
+        }
+    }
+
+    /**
+     * Returns {@code false} if a {@link SearchPlan#isTruncatable() truncatable} search hit its count limit, in which
+     * case the entries already handed over are kept and no further pages are requested. Other searches fail.
+     */
+    private static boolean consume(NamingEnumeration<SearchResult> results, SearchPlan plan, String filter,
+                                   ResultHandler handler) throws NamingException {
+        try {
+            while (results.hasMore()) {
+                handler.accept(results.next());
+            }
+            return true;
+        } catch (SizeLimitExceededException e) {
+            if (!plan.isTruncatable()) {
+                throw e;
+            }
+            LOG.warn("Search {} hit its count limit; using the entries returned so far", filter);
+            return false;
+        } finally {
+            results.close();
+        }
+    }
+
+    private static byte[] nextCookie(Control[] responseControls) {
+        if (responseControls != null) {
+            for (Control control : responseControls) {
+                if (control instanceof PagedResultsResponseControl) {
+                    return ((PagedResultsResponseControl) control).getCookie();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.Hashtable;
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+
+/**
+ * A connection owned by a {@link LdapConnectionPool}. Closing it hands it back to the pool; the
+ * underlying connection is only torn down when the pool discards it.
+ */
+class PooledDirContext extends AutoclosingDirContext {
+    private static final String[] VALIDATION_ATTRIBUTES = {"objectClass"};
+
+    private final LdapConnectionPool pool;
+    private volatile long lastReleasedNanos = System.nanoTime();
+    private volatile boolean broken = false;
+    private boolean reused = false;
+
+    PooledDirContext(LdapConnectionPool pool, Hashtable<?, ?> environment) throws NamingException {
+        super(environment);
+        this.pool = pool;
+    }
+
+    /**
+     * Re-authenticates the existing connection as {@code principal}, costing a single bind round trip.
+     */
+    void bind(String principal, String credentials) throws NamingException {
+        addToEnvironment(Context.SECURITY_PRINCIPAL, principal);
+        addToEnvironment(Context.SECURITY_CREDENTIALS, credentials);
+        try {
+            ldapContext().reconnect(null);
+        } catch (CommunicationException | ServiceUnavailableException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    boolean isValid() {
+        if (broken) {
+            return false;
+        }
+        try {
+            getAttributes("", VALIDATION_ATTRIBUTES);
+            return true;
+        } catch (NamingException e) {
+            broken = true;
+            return false;
+        }
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    boolean isReused() {
+        return reused;
+    }
+
+    void markReused() {
+        reused = true;
+    }
+
+    long getLastReleasedNanos() {
+        return lastReleasedNanos;
+    }
+
+    @Override
+    public NamingEnumeration<SearchResult> search(String name, String filter, SearchControls cons) throws NamingException {
+        try {
+            return super.search(name, filter, cons);
+        } catch (NamingException e) {
+            if (LdapServerSet.isServerFailure(e)) {
+                broken = true;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        lastReleasedNanos = System.nanoTime();
+        pool.release(this);
+    }
+
+    void destroy() {
+        try {
+            super.close();
+        } catch (NamingException ignored) {
+            // the connection is being discarded anyway
+        }
+    }
+}
@@ -7,8 +7,10 @@ import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
-public class ResourceAuthenticator implements Authenticator<BasicCredentials, LdapUser> {
+public class ResourceAuthenticator implements Authenticator<BasicCredentials, LdapUser>,
+        AsyncAuthenticator<BasicCredentials, LdapUser> {
 
     private final LdapAuthenticator ldapAuthenticator;
 
@@ -24,4 +26,11 @@ public class ResourceAuthenticator implements Authenticator<BasicCredentials, Ld
             return Optional.empty();
         }
     }
+
+    @Override
+    public CompletableFuture<Optional<LdapUser>> authenticateAsync(BasicCredentials credentials) {
+        return ldapAuthenticator.authenticateAsync(credentials).thenApply(authenticated -> authenticated
+                ? Optional.of(new LdapUser(credentials.getUsername(), Collections.<String>emptySet()))
+                : Optional.empty());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns the role names used in {@code @LdapRolesAllowed} to small integer ids, so role checks can be done on
+ * bitsets. Only roles named by an annotation get an id; a user's other groups are ignored when building their
+ * bitset, which keeps the id space as small as the set of roles resources actually check.
+ */
+final class RoleIds {
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private RoleIds() {
+    }
+
+    /**
+     * The bitset with a bit set for each of {@code roles}, assigning ids to those that have none yet.
+     */
+    static long[] register(String... roles) {
+        int max = -1;
+        final int[] ids = new int[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            ids[i] = idOf(roles[i]);
+            max = Math.max(max, ids[i]);
+        }
+        final long[] bits = new long[max / Long.SIZE + 1];
+        for (int id : ids) {
+            bits[id / Long.SIZE] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /**
+     * The bitset of those {@code roles} that have an id; roles no resource checks are left out.
+     */
+    static long[] lookup(Collection<String> roles) {
+        long[] bits = new long[0];
+        for (String role : roles) {
+            final Integer id = IDS.get(role);
+            if (id == null) {
+                continue;
+            }
+            final int word = id / Long.SIZE;
+            if (word >= bits.length) {
+                final long[] grown = new long[word + 1];
+                System.arraycopy(bits, 0, grown, 0, bits.length);
+                bits = grown;
+            }
+            bits[word] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /**
+     * Increases every time a role gets an id, invalidating bitsets built by {@link #lookup(Collection)} before.
+     */
+    static int generation() {
+        return IDS.size();
+    }
+
+    static boolean intersects(long[] a, long[] b) {
+        final int words = Math.min(a.length, b.length);
+        for (int i = 0; i < words; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int idOf(String role) {
+        final Integer id = IDS.get(role);
+        if (id != null) {
+            return id;
+        }
+        synchronized (IDS) {
+            return IDS.computeIfAbsent(role, ignored -> IDS.size());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class SearchConnectionConfiguration {
+    private boolean enabled = false;
+
+    private String bindDn;
+
+    private String bindPassword;
+
+    @Min(0)
+    private int minConnections = 1;
+
+    @Min(1)
+    private int maxConnections = 4;
+
+    @NotNull
+    @Valid
+    private Duration maxWait = Duration.milliseconds(500);
+
+    @NotNull
+    @Valid
+    private Duration idleTimeout = Duration.minutes(10);
+
+    @NotNull
+    @Valid
+    private Duration validationInterval = Duration.seconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SearchConnectionConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * The service account group searches bind as; anonymous if unset.
+     */
+    public String getBindDn() {
+        return bindDn;
+    }
+
+    public SearchConnectionConfiguration setBindDn(String bindDn) {
+        this.bindDn = bindDn;
+        return this;
+    }
+
+    public String getBindPassword() {
+        return bindPassword;
+    }
+
+    public SearchConnectionConfiguration setBindPassword(String bindPassword) {
+        this.bindPassword = bindPassword;
+        return this;
+    }
+
+    /**
+     * Connections kept open to each server even when idle.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public SearchConnectionConfiguration setMinConnections(int minConnections) {
+        this.minConnections = minConnections;
+        return this;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public SearchConnectionConfiguration setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public SearchConnectionConfiguration setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+        return this;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public SearchConnectionConfiguration setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * How often idle connections are checked with a root DSE read, and those the server dropped replaced.
+     */
+    public Duration getValidationInterval() {
+        return validationInterval;
+    }
+
+    public SearchConnectionConfiguration setValidationInterval(Duration validationInterval) {
+        this.validationInterval = validationInterval;
+        return this;
+    }
+
+    LdapConnectionPoolConfiguration toPoolConfiguration() {
+        return new LdapConnectionPoolConfiguration()
+                .setEnabled(true)
+                .setMinSize(minConnections)
+                .setMaxSize(maxConnections)
+                .setMaxWait(maxWait)
+                .setIdleTimeout(idleTimeout)
+                .setEvictionInterval(validationInterval)
+                .setValidateWhileIdle(true);
+    }
+}
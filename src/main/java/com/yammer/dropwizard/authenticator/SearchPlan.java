@@ -0,0 +1,96 @@
+package com.yammer.dropwizard.authenticator;
+
+import javax.naming.directory.SearchControls;
+
+/**
+ * A search whose base, filter shape and {@link SearchControls} (scope, returned attributes, limits) are worked
+ * out once from the configuration and reused for every request. The controls are shared and must not be
+ * modified.
+ * <p>
+ * A truncatable search answers a single login and may stop at the count limit with the entries read so far. Any
+ * other search fills a cache or snapshot, where a silently partial result would be served as complete for its
+ * whole lifetime, so hitting the limit fails it with a {@link javax.naming.SizeLimitExceededException}.
+ */
+final class SearchPlan {
+    private final String name;
+    private final String base;
+    private final String filterTemplate;
+    private final SearchControls controls;
+    private final boolean truncatable;
+
+    SearchPlan(String name, String base, String filterTemplate, SearchControls controls, boolean truncatable) {
+        this.name = name;
+        this.base = base;
+        this.filterTemplate = filterTemplate;
+        this.controls = controls;
+        this.truncatable = truncatable;
+    }
+
+    /**
+     * Identifies the kind of search, e.g. in metric names.
+     */
+    String getName() {
+        return name;
+    }
+
+    String getBase() {
+        return base;
+    }
+
+    SearchControls getControls() {
+        return controls;
+    }
+
+    /**
+     * Whether the entries read before the count limit was hit may be used as the result.
+     */
+    boolean isTruncatable() {
+        return truncatable;
+    }
+
+    /**
+     * The filter for this search, with the template's {@code %s} placeholders replaced by {@code arguments}.
+     * Arguments must already be sanitized.
+     */
+    String filter(Object... arguments) {
+        return String.format(filterTemplate, arguments);
+    }
+
+    /**
+     * Escapes a configured value so it is taken literally by {@link String#format}.
+     */
+    static String literal(String value) {
+        return value.replace("%", "%%");
+    }
+
+    /**
+     * Escapes an assertion value for use in a search filter (RFC 4515), e.g. a DN containing parentheses.
+     */
+    static String filterValue(String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                case '*':
+                case '(':
+                case ')':
+                case '\0':
+                    escaped.append(String.format("\\%02x", (int) c));
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static SearchControls controls(int scope, String[] returningAttributes, long countLimit, int timeLimitMillis) {
+        final SearchControls controls = new SearchControls();
+        controls.setSearchScope(scope);
+        controls.setReturningAttributes(returningAttributes);
+        controls.setCountLimit(countLimit);
+        controls.setTimeLimit(timeLimitMillis);
+        return controls;
+    }
+}
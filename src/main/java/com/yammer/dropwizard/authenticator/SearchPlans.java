@@ -0,0 +1,89 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.yammer.dropwizard.authenticator.SearchPlan.controls;
+import static com.yammer.dropwizard.authenticator.SearchPlan.literal;
+
+import javax.naming.directory.SearchControls;
+
+/**
+ * Every search {@link LdapAuthenticator} issues, planned once per configuration. Each plan asks only for the
+ * attributes its caller reads (none at all for existence checks), so responses stay small however many
+ * members a group has. Only the searches answering a login may be cut short by the count limit; the ones that
+ * fill caches and snapshots fail instead.
+ */
+final class SearchPlans {
+    /** Active Directory's LDAP_MATCHING_RULE_IN_CHAIN, which walks nested group memberships server-side. */
+    static final String MATCHING_RULE_IN_CHAIN = "1.2.840.113556.1.4.1941";
+
+    private static final String[] NO_ATTRIBUTES = new String[0];
+    private static final boolean TRUNCATABLE = true;
+    private static final boolean COMPLETE = false;
+
+    /** Is the user a member of any restricted group? Argument: username. */
+    final SearchPlan membershipExists;
+    /** Names of the groups a user belongs to. Argument: username. */
+    final SearchPlan userGroups;
+    /** Names and members of every restricted group. No arguments. */
+    final SearchPlan restrictedGroupMembers;
+    /** The groups listed on a user's own entry, read from the user's DN. No arguments. */
+    final SearchPlan memberOf;
+    /** Names of the groups containing a user, nested groups included (Active Directory). Argument: escaped user DN. */
+    final SearchPlan userGroupsInChain;
+    /** Is the user a member of any restricted group, nested groups included? Argument: escaped user DN. */
+    final SearchPlan membershipInChainExists;
+    /** Names and members of every group, for nested group resolution. No arguments. */
+    final SearchPlan allGroups;
+    /** Members of one group, for the group cache. Argument: group name. */
+    final SearchPlan groupMembers;
+    /** Names and members of several groups, for bulk loads of the group cache. Argument: group name clauses. */
+    final SearchPlan groupsMembers;
+    /** Names, members and timestamps of changed groups. Arguments: timestamp clause, group name clauses. */
+    final SearchPlan groupChanges;
+
+    SearchPlans(LdapConfiguration configuration) {
+        final int timeLimit = (int) Math.min(Integer.MAX_VALUE, configuration.getSearchTimeLimit().toMilliseconds());
+        final long countLimit = configuration.getSearchCountLimit();
+        final String groupBase = configuration.getGroupFilter();
+        final String nameAttribute = configuration.getGroupNameAttribute();
+        final String membershipAttribute = configuration.getGroupMembershipAttribute();
+        final String groupClass = literal(configuration.getGroupClassName());
+
+        final StringBuilder restrictedGroups = new StringBuilder();
+        for (String group : configuration.getRestrictToGroups()) {
+            restrictedGroups.append(String.format("(%s=%s)", literal(nameAttribute), literal(LdapAuthenticator.sanitizeEntity(group))));
+        }
+
+        this.membershipExists = new SearchPlan("membership-exists", groupBase,
+                String.format("(&(%s=%%s)(|%s))", literal(membershipAttribute), restrictedGroups),
+                controls(SearchControls.SUBTREE_SCOPE, NO_ATTRIBUTES, 1, timeLimit), TRUNCATABLE);
+        this.userGroups = new SearchPlan("user-groups", groupBase,
+                String.format("(&(%s=%%s)(objectClass=%s))", literal(membershipAttribute), groupClass),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute}, countLimit, timeLimit), TRUNCATABLE);
+        this.restrictedGroupMembers = new SearchPlan("restricted-group-members", groupBase,
+                String.format("(&(objectClass=%s)(|%s))", groupClass, restrictedGroups),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute, membershipAttribute}, countLimit, timeLimit), COMPLETE);
+        this.memberOf = new SearchPlan("member-of", "", "(objectClass=*)",
+                controls(SearchControls.OBJECT_SCOPE, new String[] {configuration.getMemberOfAttribute()}, 0, timeLimit), TRUNCATABLE);
+        final String inChain = String.format("(%s:%s:=%%s)", literal(membershipAttribute), MATCHING_RULE_IN_CHAIN);
+        this.userGroupsInChain = new SearchPlan("user-groups-in-chain", groupBase,
+                String.format("(&%s(objectClass=%s)%s)", inChain, groupClass,
+                        restrictedGroups.length() == 0 ? "" : "(|" + restrictedGroups + ")"),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute}, countLimit, timeLimit), TRUNCATABLE);
+        this.membershipInChainExists = new SearchPlan("membership-in-chain-exists", groupBase,
+                String.format("(&%s(|%s))", inChain, restrictedGroups),
+                controls(SearchControls.SUBTREE_SCOPE, NO_ATTRIBUTES, 1, timeLimit), TRUNCATABLE);
+        this.allGroups = new SearchPlan("all-groups", groupBase,
+                String.format("(objectClass=%s)", groupClass),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute, membershipAttribute}, countLimit, timeLimit), COMPLETE);
+        this.groupMembers = new SearchPlan("group-members", groupBase,
+                String.format("(&(%s=%%s)(objectClass=%s))", literal(nameAttribute), groupClass),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {membershipAttribute}, countLimit, timeLimit), COMPLETE);
+        this.groupsMembers = new SearchPlan("groups-members", groupBase,
+                String.format("(&(objectClass=%s)(|%%s))", groupClass),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute, membershipAttribute}, countLimit, timeLimit), COMPLETE);
+        this.groupChanges = new SearchPlan("group-changes", groupBase,
+                String.format("(&(objectClass=%s)%%s(|%%s))", groupClass),
+                controls(SearchControls.SUBTREE_SCOPE, new String[] {nameAttribute, membershipAttribute,
+                        configuration.getGroupSync().getTimestampAttribute()}, countLimit, timeLimit), COMPLETE);
+    }
+}
@@ -0,0 +1,46 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class ServerSelectionConfiguration {
+    @NotNull
+    private ServerSelectionStrategy strategy = ServerSelectionStrategy.ROUND_ROBIN;
+
+    @Min(1)
+    private int failureThreshold = 2;
+
+    @NotNull
+    @Valid
+    private Duration retryInterval = Duration.seconds(30);
+
+    public ServerSelectionStrategy getStrategy() {
+        return strategy;
+    }
+
+    public ServerSelectionConfiguration setStrategy(ServerSelectionStrategy strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public ServerSelectionConfiguration setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+        return this;
+    }
+
+    public Duration getRetryInterval() {
+        return retryInterval;
+    }
+
+    public ServerSelectionConfiguration setRetryInterval(Duration retryInterval) {
+        this.retryInterval = retryInterval;
+        return this;
+    }
+}
@@ -0,0 +1,59 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How {@link LdapServerSet} picks the server that receives the next operation among those currently in rotation.
+ */
+public enum ServerSelectionStrategy {
+    /** Each server in turn. */
+    ROUND_ROBIN {
+        @Override
+        LdapServer choose(List<LdapServer> candidates, int sequence) {
+            return candidates.get(Math.floorMod(sequence, candidates.size()));
+        }
+    },
+
+    /** The server with the fewest operations in flight; ties rotate. */
+    LEAST_OUTSTANDING {
+        @Override
+        LdapServer choose(List<LdapServer> candidates, int sequence) {
+            LdapServer best = null;
+            for (int i = 0; i < candidates.size(); i++) {
+                final LdapServer candidate = candidates.get(Math.floorMod(sequence + i, candidates.size()));
+                if (best == null || candidate.getOutstanding() < best.getOutstanding()) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+    },
+
+    /**
+     * A random server, weighted by the inverse of its recent average latency. Servers that have not answered yet
+     * are treated as the fastest so they get measured.
+     */
+    LATENCY_WEIGHTED {
+        private static final double MINIMUM_LATENCY_NANOS = 100_000;
+
+        @Override
+        LdapServer choose(List<LdapServer> candidates, int sequence) {
+            final double[] weights = new double[candidates.size()];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i] = 1 / Math.max(MINIMUM_LATENCY_NANOS, candidates.get(i).getLatencyNanos());
+            }
+            double point = ThreadLocalRandom.current().nextDouble(total);
+            for (int i = 0; i < weights.length; i++) {
+                point -= weights[i];
+                if (point < 0) {
+                    return candidates.get(i);
+                }
+            }
+            return candidates.get(weights.length - 1);
+        }
+    };
+
+    abstract LdapServer choose(List<LdapServer> candidates, int sequence);
+}
@@ -0,0 +1,65 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.auth.AuthFilter;
+import java.io.IOException;
+import java.security.Principal;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+
+/**
+ * Authenticates {@code Authorization: Bearer <token>} requests with a {@link SessionTokens} verifier and hands
+ * every other request, and every token that does not verify, to the Basic filter it is chained with. Clients
+ * without a valid token therefore get the Basic challenge, and token checks never throw on the way to Basic.
+ */
+@Priority(Priorities.AUTHENTICATION)
+public class SessionTokenAuthFilter<P extends Principal> extends AuthFilter<String, P> {
+    public static final String AUTHENTICATION_SCHEME = "Bearer";
+
+    private final AuthFilter<?, P> fallback;
+
+    private SessionTokenAuthFilter(AuthFilter<?, P> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        final String token = parseToken(requestContext.getHeaders().getFirst(HttpHeaders.AUTHORIZATION), prefix);
+        if (token == null || !authenticate(requestContext, token, AUTHENTICATION_SCHEME)) {
+            fallback.filter(requestContext);
+        }
+    }
+
+    /**
+     * The token in an {@code Authorization} header with the given scheme, or {@code null} if there is none.
+     */
+    static String parseToken(String header, String prefix) {
+        if (header == null || header.length() <= prefix.length() + 1
+                || !header.regionMatches(true, 0, prefix, 0, prefix.length()) || header.charAt(prefix.length()) != ' ') {
+            return null;
+        }
+        return header.substring(prefix.length() + 1).trim();
+    }
+
+    public static class Builder<P extends Principal> extends AuthFilterBuilder<String, P, SessionTokenAuthFilter<P>> {
+        private AuthFilter<?, P> fallback;
+
+        public Builder() {
+            setPrefix(AUTHENTICATION_SCHEME);
+        }
+
+        /**
+         * The filter for requests that carry no valid token, usually the Basic one.
+         */
+        public Builder<P> setFallback(AuthFilter<?, P> fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        @Override
+        protected SessionTokenAuthFilter<P> newInstance() {
+            return new SessionTokenAuthFilter<>(fallback);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.yammer.dropwizard.authenticator;
+
+import io.dropwizard.util.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+@SuppressWarnings("unused")
+public class SessionTokenConfiguration {
+    private boolean enabled = false;
+
+    private String secret;
+
+    @NotNull
+    @Valid
+    private Duration ttl = Duration.minutes(5);
+
+    @NotEmpty
+    private String responseHeader = "X-Auth-Token";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SessionTokenConfiguration setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * The HMAC key tokens are signed with, at least 32 characters; instances sharing it accept each other's
+     * tokens. If unset, a random key is generated and tokens are only accepted by the instance that issued them.
+     */
+    public String getSecret() {
+        return secret;
+    }
+
+    public SessionTokenConfiguration setSecret(String secret) {
+        this.secret = secret;
+        return this;
+    }
+
+    /**
+     * How long a token is accepted. Role changes in LDAP reach holders of a token only once it expires.
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public SessionTokenConfiguration setTtl(Duration ttl) {
+        this.ttl = ttl;
+        return this;
+    }
+
+    /**
+     * The response header a token is returned in after a successful Basic login.
+     */
+    public String getResponseHeader() {
+        return responseHeader;
+    }
+
+    public SessionTokenConfiguration setResponseHeader(String responseHeader) {
+        this.responseHeader = responseHeader;
+        return this;
+    }
+}
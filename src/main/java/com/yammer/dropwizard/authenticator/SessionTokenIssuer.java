@@ -0,0 +1,34 @@
+package com.yammer.dropwizard.authenticator;
+
+import java.security.Principal;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * Returns a session token in the configured response header whenever a request was authenticated with Basic
+ * credentials, so the client can present it instead on its next requests. Requests already authenticated by
+ * token are not given a new one: a token is only as fresh as the LDAP lookup behind it.
+ */
+public class SessionTokenIssuer implements ContainerResponseFilter {
+    private final SessionTokens tokens;
+    private final String header;
+
+    public SessionTokenIssuer(SessionTokens tokens, String header) {
+        this.tokens = tokens;
+        this.header = header;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        if (securityContext == null || !SecurityContext.BASIC_AUTH.equals(securityContext.getAuthenticationScheme())) {
+            return;
+        }
+        final Principal principal = securityContext.getUserPrincipal();
+        if (principal instanceof LdapUser) {
+            responseContext.getHeaders().putSingle(header, tokens.issue((LdapUser) principal));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.yammer.dropwizard.authenticator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issues and verifies short-lived tokens carrying an {@link LdapUser}'s name and roles, so a client that has
+ * logged in once with Basic credentials can be authenticated without LDAP or the credential cache until the
+ * token expires. A token is {@code <payload>.<signature>}, both URL-safe Base64, the signature being the
+ * HMAC-SHA256 of the payload.
+ */
+public class SessionTokens {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTokens.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MINIMUM_SECRET_LENGTH = 32;
+    private static final byte VERSION = 1;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    public SessionTokens(SessionTokenConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public SessionTokens(SessionTokenConfiguration configuration, Clock clock) {
+        this.key = new SecretKeySpec(secret(configuration.getSecret()), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        this.ttlMillis = configuration.getTtl().toMilliseconds();
+        this.clock = clock;
+    }
+
+    private static byte[] secret(String configured) {
+        if (configured == null) {
+            LOG.warn("No session token secret configured; tokens will only be accepted by this instance");
+            final byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            return secret;
+        }
+        final byte[] secret = configured.getBytes(StandardCharsets.UTF_8);
+        checkArgument(secret.length >= MINIMUM_SECRET_LENGTH,
+                "session token secret must be at least %s characters", MINIMUM_SECRET_LENGTH);
+        return secret;
+    }
+
+    /**
+     * A token for {@code user}, valid for the configured TTL.
+     */
+    public String issue(LdapUser user) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream payload = new DataOutputStream(bytes)) {
+            payload.writeByte(VERSION);
+            payload.writeLong(clock.millis() + ttlMillis);
+            payload.writeUTF(user.getName());
+            payload.writeInt(user.getRoles().size());
+            for (String role : user.getRoles()) {
+                payload.writeUTF(role);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final byte[] encoded = bytes.toByteArray();
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(encoded) + '.' + encoder.encodeToString(mac.get().doFinal(encoded));
+    }
+
+    /**
+     * The user {@code token} was issued for, or empty if it is malformed, not signed with this key or expired.
+     */
+    public Optional<LdapUser> verify(String token) {
+        final int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        final byte[] payload;
+        final byte[] signature;
+        try {
+            final Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(mac.get().doFinal(payload), signature)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION || in.readLong() <= clock.millis()) {
+                return Optional.empty();
+            }
+            final String name = in.readUTF();
+            final int count = in.readInt();
+            final ImmutableSet.Builder<String> roles = ImmutableSet.builderWithExpectedSize(count);
+            for (int i = 0; i < count; i++) {
+                roles.add(in.readUTF());
+            }
+            return Optional.of(new LdapUser(name, roles.build()));
+        } catch (IOException e) {
+            return Optional.empty(); // signed by us, so only a bug could truncate it
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
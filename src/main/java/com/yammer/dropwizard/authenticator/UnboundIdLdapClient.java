@@ -0,0 +1,423 @@
+package com.yammer.dropwizard.authenticator;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.AggregateLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.BindRequest;
+import com.unboundid.ldap.sdk.DereferencePolicy;
+import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSearchException;
+import com.unboundid.ldap.sdk.PruneUnneededConnectionsLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.SingleServerSet;
+import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
+import com.unboundid.util.ssl.HostNameSSLSocketVerifier;
+import com.unboundid.util.ssl.SSLUtil;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.SizeLimitExceededException;
+import javax.naming.directory.SearchControls;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link LdapClient} on the UnboundID LDAP SDK. Each server gets up to two of the SDK's connection pools: one
+ * whose connections are re-bound as each user who logs in, sized by {@link LdapConfiguration#getConnectionPool()}
+ * and only created when that pool is enabled (otherwise every login opens a connection of its own), and one bound as
+ * the search account (see {@link LdapConfiguration#getSearchConnections()}) for group searches, health-checked in
+ * the background. A session holds on to one connection until it is closed, so every page of a paged search goes
+ * over the connection that issued its cookie. Entries are decoded straight from the protocol stream, without JNDI's
+ * attribute and enumeration objects.
+ */
+final class UnboundIdLdapClient implements LdapClient {
+    private static final Logger LOG = LoggerFactory.getLogger(UnboundIdLdapClient.class);
+
+    private final Map<LdapServer, LDAPConnectionPool> bindPools;
+    private final Map<LdapServer, LDAPConnectionPool> searchPools;
+    private final Map<LdapServer, SingleServerSet> bindServerSets;
+
+    UnboundIdLdapClient(LdapConfiguration configuration, Iterable<LdapServer> bindServers,
+                        Iterable<LdapServer> searchServers) {
+        final LDAPConnectionOptions options = new LDAPConnectionOptions();
+        options.setConnectTimeoutMillis((int) configuration.getConnectTimeout().toMilliseconds());
+        options.setResponseTimeoutMillis(configuration.getReadTimeout().toMilliseconds());
+        // the SDK trusts any name on a certificate it trusts unless told otherwise
+        options.setSSLSocketVerifier(new HostNameSSLSocketVerifier(true));
+        final LdapConnectionPoolConfiguration bindPool = configuration.getConnectionPool();
+        final SearchConnectionConfiguration searchConnections = configuration.getSearchConnections();
+        final BindRequest searchAccount = !searchConnections.isEnabled() || searchConnections.getBindDn() == null
+                ? null
+                : new SimpleBindRequest(searchConnections.getBindDn(), Strings.nullToEmpty(searchConnections.getBindPassword()));
+
+        final Map<LdapServer, LDAPConnectionPool> bind = new LinkedHashMap<>();
+        final Map<LdapServer, LDAPConnectionPool> search = new LinkedHashMap<>();
+        final Map<LdapServer, SingleServerSet> bindServerSets = new LinkedHashMap<>();
+        try {
+            for (LdapServer server : bindServers) {
+                if (!bindPool.isEnabled()) {
+                    bindServerSets.put(server, serverSet(server, options));
+                    continue;
+                }
+                final LDAPConnectionPool pool = pool(server, options, null, bindPool.getMinSize(), bindPool.getMaxSize());
+                pool.setMaxWaitTimeMillis(bindPool.getMaxWait().toMilliseconds());
+                pool.setHealthCheck(new PruneUnneededConnectionsLDAPConnectionPoolHealthCheck(bindPool.getMinSize(),
+                        bindPool.getIdleTimeout().toMilliseconds()));
+                pool.setHealthCheckIntervalMillis(bindPool.getEvictionInterval().toMilliseconds());
+                bind.put(server, pool);
+            }
+            for (LdapServer server : searchServers) {
+                if (search.containsKey(server)) {
+                    continue;
+                }
+                final LDAPConnectionPool pool = pool(server, options, searchAccount,
+                        searchConnections.getMinConnections(), searchConnections.getMaxConnections());
+                pool.setMaxWaitTimeMillis(searchConnections.getMaxWait().toMilliseconds());
+                pool.setHealthCheck(new AggregateLDAPConnectionPoolHealthCheck(
+                        new GetEntryLDAPConnectionPoolHealthCheck("",
+                                configuration.getReadTimeout().toMilliseconds(), false, false, false, false, true, true),
+                        new PruneUnneededConnectionsLDAPConnectionPoolHealthCheck(searchConnections.getMinConnections(),
+                                searchConnections.getIdleTimeout().toMilliseconds())));
+                pool.setHealthCheckIntervalMillis(searchConnections.getValidationInterval().toMilliseconds());
+                search.put(server, pool);
+            }
+        } catch (LDAPException | GeneralSecurityException e) {
+            bind.values().forEach(LDAPConnectionPool::close);
+            search.values().forEach(LDAPConnectionPool::close);
+            throw new IllegalStateException("Unable to set up LDAP connection pools", e);
+        }
+        this.bindPools = ImmutableMap.copyOf(bind);
+        this.searchPools = ImmutableMap.copyOf(search);
+        this.bindServerSets = ImmutableMap.copyOf(bindServerSets);
+    }
+
+    /**
+     * A pool that opens connections on demand, up to {@code maxConnections}, so the directory being down at
+     * startup does not prevent it from being created. {@code ldaps} servers must present a certificate the JVM
+     * trusts (honouring {@code javax.net.ssl.trustStore}, as JNDI does) issued for the host in their URI.
+     */
+    private static LDAPConnectionPool pool(LdapServer server, LDAPConnectionOptions options, BindRequest bindRequest,
+                                           int minConnections, int maxConnections)
+            throws LDAPException, GeneralSecurityException {
+        final LDAPConnectionPool pool = new LDAPConnectionPool(serverSet(server, options), bindRequest, 0,
+                maxConnections, null, false);
+        pool.setConnectionPoolName("ldap-" + server.getUri().getAuthority());
+        pool.setCreateIfNecessary(false);
+        pool.setMinimumAvailableConnectionGoal(minConnections);
+        return pool;
+    }
+
+    private static SingleServerSet serverSet(LdapServer server, LDAPConnectionOptions options)
+            throws GeneralSecurityException {
+        final URI uri = server.getUri();
+        final boolean secure = "ldaps".equalsIgnoreCase(uri.getScheme());
+        final int port = uri.getPort() > 0 ? uri.getPort() : secure ? 636 : 389;
+        return secure
+                ? new SingleServerSet(uri.getHost(), port, new SSLUtil(trustManagers()).createSSLSocketFactory(), options)
+                : new SingleServerSet(uri.getHost(), port, options);
+    }
+
+    private static TrustManager[] trustManagers() throws GeneralSecurityException {
+        final TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        return factory.getTrustManagers();
+    }
+
+    @Override
+    public LdapSession bind(LdapServer server, String dn, String password) throws NamingException {
+        final LDAPConnectionPool pool = bindPools.get(server);
+        final LDAPConnection connection = open(server, pool);
+        try {
+            connection.bind(dn, password);
+            return new Session(connection, pool, false);
+        } catch (LDAPException e) {
+            release(pool, connection, e);
+            if (e.getResultCode() == ResultCode.PARAM_ERROR) {
+                // the SDK refuses a DN without a password rather than binding anonymously
+                final NamingException rejected = new javax.naming.AuthenticationException(e.getMessage());
+                rejected.setRootCause(e);
+                throw rejected;
+            }
+            throw toNamingException(e);
+        }
+    }
+
+    @Override
+    public LdapSession searchSession(LdapServer server) throws NamingException {
+        final LDAPConnectionPool pool = searchPools.get(server);
+        return new Session(open(server, pool), pool, true);
+    }
+
+    @Override
+    public LdapSession connect(LdapServer server) throws NamingException {
+        final LDAPConnectionPool pool = bindPools.containsKey(server) ? bindPools.get(server) : searchPools.get(server);
+        return new Session(open(server, pool), pool, false);
+    }
+
+    /**
+     * A connection checked out of {@code pool}, or a new one of its own if the server has no pool.
+     */
+    private LDAPConnection open(LdapServer server, @Nullable LDAPConnectionPool pool) throws NamingException {
+        try {
+            return pool == null ? bindServerSets.get(server).getConnection() : pool.getConnection();
+        } catch (LDAPException e) {
+            throw toNamingException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        bindPools.values().forEach(LDAPConnectionPool::close);
+        searchPools.values().forEach(LDAPConnectionPool::close);
+    }
+
+    private static void release(@Nullable LDAPConnectionPool pool, LDAPConnection connection, LDAPException failure) {
+        if (pool == null) {
+            connection.close();
+        } else if (failure.getResultCode().isConnectionUsable()) {
+            pool.releaseConnection(connection);
+        } else {
+            pool.releaseDefunctConnection(connection);
+        }
+    }
+
+    /**
+     * The JNDI exception for {@code e}, so failover, the circuit breaker and rejected-credential handling work as
+     * they do with {@link JndiLdapClient}.
+     */
+    static NamingException toNamingException(LDAPException e) {
+        final ResultCode resultCode = e.getResultCode();
+        final NamingException namingException;
+        if (resultCode == ResultCode.INVALID_CREDENTIALS || resultCode == ResultCode.INAPPROPRIATE_AUTHENTICATION) {
+            namingException = new javax.naming.AuthenticationException(e.getMessage());
+        } else if (resultCode == ResultCode.UNAVAILABLE || resultCode == ResultCode.BUSY) {
+            namingException = new ServiceUnavailableException(e.getMessage());
+        } else if (resultCode == ResultCode.NO_SUCH_OBJECT) {
+            namingException = new NameNotFoundException(e.getMessage());
+        } else if (!resultCode.isConnectionUsable() || resultCode == ResultCode.TIMEOUT) {
+            namingException = new CommunicationException(e.getMessage());
+        } else {
+            namingException = new NamingException(e.getMessage());
+        }
+        namingException.setRootCause(e);
+        return namingException;
+    }
+
+    private static SearchScope scope(int jndiScope) {
+        switch (jndiScope) {
+            case SearchControls.OBJECT_SCOPE:
+                return SearchScope.BASE;
+            case SearchControls.ONELEVEL_SCOPE:
+                return SearchScope.ONE;
+            default:
+                return SearchScope.SUB;
+        }
+    }
+
+    /**
+     * JNDI asks for no attributes with an empty array; LDAP with the special {@code 1.1}.
+     */
+    private static String[] attributes(String[] returningAttributes) {
+        if (returningAttributes == null) {
+            return new String[0];
+        }
+        return returningAttributes.length == 0 ? new String[] {SearchRequest.NO_ATTRIBUTES} : returningAttributes;
+    }
+
+    /**
+     * Operations over one connection, returned to its pool on close or, without a pool, closed. A search session
+     * replaces a connection the server dropped while it sat in the pool and retries the operation once, provided
+     * it has not handed over any entries yet; a connection bound as a user cannot be replaced that way.
+     */
+    private static final class Session implements LdapSession {
+        @Nullable
+        private final LDAPConnectionPool owner;
+        private final boolean reconnect;
+        private LDAPConnection connection;
+        private boolean delivered;
+        private boolean defunct;
+
+        Session(LDAPConnection connection, @Nullable LDAPConnectionPool owner, boolean reconnect) {
+            this.connection = connection;
+            this.owner = owner;
+            this.reconnect = reconnect && owner != null;
+        }
+
+        @Override
+        public void search(SearchPlan plan, String filter, int pageSize, EntryHandler handler) throws NamingException {
+            final SearchControls controls = plan.getControls();
+            try {
+                final SearchRequest request = new SearchRequest(plan.getBase(), scope(controls.getSearchScope()),
+                        DereferencePolicy.NEVER, (int) Math.min(Integer.MAX_VALUE, controls.getCountLimit()),
+                        (controls.getTimeLimit() + 999) / 1000, false, filter, attributes(controls.getReturningAttributes()));
+                withReconnect(() -> {
+                    ASN1OctetString cookie = null;
+                    do {
+                        if (pageSize > 0) {
+                            request.setControls(new SimplePagedResultsControl(pageSize, cookie, false));
+                        }
+                        final SearchResult result;
+                        try {
+                            result = connection.search(request);
+                        } catch (LDAPSearchException e) {
+                            if (e.getResultCode() != ResultCode.SIZE_LIMIT_EXCEEDED) {
+                                throw e;
+                            }
+                            if (!plan.isTruncatable()) {
+                                final SizeLimitExceededException limit = new SizeLimitExceededException(e.getMessage());
+                                limit.setRootCause(e);
+                                throw limit;
+                            }
+                            handleAll(e.getSearchEntries(), handler);
+                            LOG.warn("Search {} hit its count limit; using the entries returned so far", filter);
+                            return null;
+                        }
+                        handleAll(result.getSearchEntries(), handler);
+                        final SimplePagedResultsControl paged = pageSize > 0 ? SimplePagedResultsControl.get(result) : null;
+                        cookie = paged == null ? null : paged.getCookie();
+                    } while (cookie != null && cookie.getValueLength() > 0);
+                    return null;
+                });
+            } catch (LDAPException e) {
+                throw failure(e);
+            }
+        }
+
+        private void handleAll(Collection<SearchResultEntry> entries, EntryHandler handler) throws NamingException {
+            if (entries == null) {
+                return;
+            }
+            for (SearchResultEntry entry : entries) {
+                delivered = true;
+                handler.accept(new Entry(entry));
+            }
+        }
+
+        @Override
+        public boolean exists(SearchPlan plan, String filter) throws NamingException {
+            final SearchControls controls = plan.getControls();
+            try {
+                final SearchRequest request = new SearchRequest(plan.getBase(), scope(controls.getSearchScope()),
+                        DereferencePolicy.NEVER, (int) Math.min(Integer.MAX_VALUE, controls.getCountLimit()),
+                        (controls.getTimeLimit() + 999) / 1000, false, filter, SearchRequest.NO_ATTRIBUTES);
+                return withReconnect(() -> connection.search(request).getEntryCount() > 0);
+            } catch (LDAPException e) {
+                if (e.getResultCode() == ResultCode.SIZE_LIMIT_EXCEEDED) {
+                    return true; // more than the one match asked for
+                }
+                throw failure(e);
+            }
+        }
+
+        @Override
+        public LdapEntry read(String dn, String[] attributes) throws NamingException {
+            final SearchResultEntry entry;
+            try {
+                entry = withReconnect(() -> connection.getEntry(dn, attributes(attributes)));
+            } catch (LDAPException e) {
+                throw failure(e);
+            }
+            if (entry == null) {
+                throw new NameNotFoundException(dn);
+            }
+            return new Entry(entry);
+        }
+
+        @Override
+        public boolean compare(String dn, String attribute, String value) throws NamingException {
+            try {
+                return withReconnect(() -> connection.compare(dn, attribute, value).compareMatched());
+            } catch (LDAPException e) {
+                if (e.getResultCode() == ResultCode.NO_SUCH_OBJECT) {
+                    return false;
+                }
+                throw failure(e);
+            }
+        }
+
+        private <T> T withReconnect(Operation<T> operation) throws LDAPException, NamingException {
+            try {
+                return operation.apply();
+            } catch (LDAPException e) {
+                if (!reconnect || delivered || e.getResultCode().isConnectionUsable()) {
+                    throw e;
+                }
+                final LDAPConnection dropped = connection;
+                connection = null; // already released, should opening a new one fail
+                connection = owner.replaceDefunctConnection(dropped);
+                return operation.apply();
+            }
+        }
+
+        private NamingException failure(LDAPException e) {
+            defunct |= !e.getResultCode().isConnectionUsable();
+            return toNamingException(e);
+        }
+
+        @Override
+        public void close() {
+            if (connection == null) {
+                return;
+            }
+            if (owner == null) {
+                connection.close();
+            } else if (defunct) {
+                owner.releaseDefunctConnection(connection);
+            } else {
+                owner.releaseConnection(connection);
+            }
+        }
+
+        @FunctionalInterface
+        private interface Operation<T> {
+            T apply() throws LDAPException, NamingException;
+        }
+    }
+
+    private static final class Entry implements LdapEntry {
+        private final SearchResultEntry entry;
+
+        Entry(SearchResultEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getDn() {
+            return entry.getDN();
+        }
+
+        @Override
+        public String getValue(String attribute) {
+            return entry.getAttributeValue(attribute);
+        }
+
+        @Override
+        public Collection<String> getValues(String attribute) {
+            final Attribute values = entry.getAttribute(attribute);
+            return values == null ? Collections.emptyList() : Arrays.asList(values.getValues());
+        }
+    }
+}
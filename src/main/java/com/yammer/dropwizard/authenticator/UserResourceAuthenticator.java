@@ -6,8 +6,10 @@ import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
-public class UserResourceAuthenticator implements Authenticator<BasicCredentials, LdapUser> {
+public class UserResourceAuthenticator implements Authenticator<BasicCredentials, LdapUser>,
+        AsyncAuthenticator<BasicCredentials, LdapUser> {
 
     private final LdapAuthenticator ldapAuthenticator;
 
@@ -19,4 +21,9 @@ public class UserResourceAuthenticator implements Authenticator<BasicCredentials
     public Optional<LdapUser> authenticate(BasicCredentials credentials) throws AuthenticationException {
         return ldapAuthenticator.authenticateAndReturnPermittedGroups(credentials);
     }
+
+    @Override
+    public CompletableFuture<Optional<LdapUser>> authenticateAsync(BasicCredentials credentials) {
+        return ldapAuthenticator.authenticateAndReturnPermittedGroupsAsync(credentials);
+    }
 }
\ No newline at end of file
@@ -4,24 +4,69 @@ package com.yammer.dropwizard.authenticator.healthchecks;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.codahale.metrics.health.HealthCheck;
+import com.yammer.dropwizard.authenticator.LdapHealthProber;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class LdapHealthCheck<T extends Principal> extends HealthCheck {
     private final Authenticator<BasicCredentials, T> ldapAuthenticator;
+    private final LdapHealthProber prober;
 
+    /**
+     * Checks by authenticating against LDAP on every call.
+     */
     public LdapHealthCheck(Authenticator<BasicCredentials, T> ldapAuthenticator) {
         this.ldapAuthenticator = checkNotNull(ldapAuthenticator, "ldapAuthenticator cannot be null");
+        this.prober = null;
+    }
+
+    /**
+     * Reports the latest results of {@code prober} without contacting LDAP. Healthy while at least one server
+     * users bind against answered its most recent probe.
+     */
+    public LdapHealthCheck(LdapHealthProber prober) {
+        this.ldapAuthenticator = null;
+        this.prober = checkNotNull(prober, "prober cannot be null");
     }
 
     @Override
     public Result check() throws AuthenticationException {
+        if (prober != null) {
+            return checkProbes();
+        }
         if (ldapAuthenticator.authenticate(new BasicCredentials("", "")).isPresent()) {
             return Result.healthy();
         } else {
             return Result.unhealthy("Cannot contact authentication service");
         }
     }
-}
\ No newline at end of file
+
+    private Result checkProbes() {
+        final long now = System.nanoTime();
+        final ResultBuilder result = Result.builder();
+        boolean healthy = false;
+        for (LdapHealthProber.ServerStatus status : prober.getStatuses()) {
+            final boolean serverHealthy = prober.isHealthy(status);
+            healthy |= serverHealthy && !status.isReplica();
+            final Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("healthy", serverHealthy);
+            detail.put("replica", status.isReplica());
+            if (status.getLastSuccessNanos() != 0) {
+                detail.put("latencyMillis", TimeUnit.NANOSECONDS.toMillis(status.getLatencyNanos()));
+                detail.put("lastSuccessAgeMillis", TimeUnit.NANOSECONDS.toMillis(now - status.getLastSuccessNanos()));
+            }
+            if (status.getError() != null) {
+                detail.put("error", status.getError());
+            }
+            result.withDetail(status.getServer().toString(), detail);
+        }
+        return healthy
+                ? result.healthy().build()
+                : result.unhealthy().withMessage("Cannot contact authentication service").build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.yammer.dropwizard.authenticator.healthchecks.tests;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -12,9 +14,15 @@ import com.yammer.dropwizard.authenticator.LdapConfiguration;
 import com.yammer.dropwizard.authenticator.ResourceAuthenticator;
 import com.yammer.dropwizard.authenticator.healthchecks.LdapHealthCheck;
 import io.dropwizard.auth.basic.BasicCredentials;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.tests.InMemoryLdap;
+import io.dropwizard.util.Duration;
+import org.junit.Rule;
 import org.junit.Test;
 
 public class LdapHealthCheckTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
 
     @Test
     public void healthy() throws Exception {
@@ -30,4 +38,54 @@ public class LdapHealthCheckTest {
         final LdapHealthCheck badHealthCheck = new LdapHealthCheck<>(new ResourceAuthenticator(badLdapAuthenticator));
         assertFalse(badHealthCheck.check().isHealthy());
     }
+
+    @Test
+    public void reportsTheLatestProbe() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(probed(Duration.minutes(1)))) {
+            final LdapHealthCheck healthCheck = new LdapHealthCheck<>(authenticator.getHealthProber());
+            authenticator.getHealthProber().probe();
+            assertTrue(healthCheck.check().isHealthy());
+            assertThat(healthCheck.check().getDetails().containsKey(ldap.getUri().toString()), is(true));
+
+            ldap.setFailureRate(1);
+            assertTrue(healthCheck.check().isHealthy());
+            authenticator.getHealthProber().probe();
+            assertFalse(healthCheck.check().isHealthy());
+
+            ldap.setFailureRate(0);
+            authenticator.getHealthProber().probe();
+            assertTrue(healthCheck.check().isHealthy());
+        }
+    }
+
+    @Test
+    public void probesOverOneConnection() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(probed(Duration.minutes(1)))) {
+            authenticator.getHealthProber().probe();
+            final int connections = ldap.getConnectionCount();
+            for (int i = 0; i < 10; i++) {
+                authenticator.getHealthProber().probe();
+            }
+            assertThat(ldap.getConnectionCount(), is(connections));
+            assertThat(ldap.getOpenConnectionCount(), is(1));
+        }
+    }
+
+    @Test
+    public void staleProbesAreUnhealthy() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(probed(Duration.milliseconds(1)))) {
+            final LdapHealthCheck healthCheck = new LdapHealthCheck<>(authenticator.getHealthProber());
+            authenticator.getHealthProber().probe();
+            Thread.sleep(10);
+            assertFalse(healthCheck.check().isHealthy());
+        }
+    }
+
+    private LdapConfiguration probed(Duration maxStaleness) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setHealthProbe(new HealthProbeConfiguration()
+                        .setInterval(Duration.hours(1))
+                        .setMaxStaleness(maxStaleness));
+    }
 }
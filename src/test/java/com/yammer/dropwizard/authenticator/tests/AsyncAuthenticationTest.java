@@ -0,0 +1,125 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.yammer.dropwizard.authenticator.LdapAuthenticatorBundle;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import com.yammer.dropwizard.authenticator.tests.LdapAuthenticatorBundleIntegrationTest.TestConfiguration;
+import io.dropwizard.Application;
+import io.dropwizard.auth.LdapAuth;
+import io.dropwizard.auth.LdapRolesAllowed;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.dropwizard.util.Duration;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+/**
+ * Drives the suspend, authenticate and dispatch path of {@code asyncAuthentication} in a running application.
+ */
+public class AsyncAuthenticationTest {
+    private static final InMemoryLdap LDAP = new InMemoryLdap();
+    private static final DropwizardAppRule<TestConfiguration> APP = new DropwizardAppRule<>(TestApplication.class,
+            ResourceHelpers.resourceFilePath("async.yml"),
+            ConfigOverride.config("ldap.uri", () -> LDAP.getUri().toString()));
+
+    @ClassRule
+    public static final RuleChain RULES = RuleChain.outerRule(LDAP).around(APP);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    public void authenticatesSuspendedRequestsAndDispatchesThem() throws Exception {
+        final HttpResponse<String> alice = get("/protected/whoami", "alice", "alice-secret");
+        assertThat(alice.statusCode(), is(200));
+        assertThat(alice.body(), is("alice"));
+        assertThat(get("/protected/whoami", "bob", "wrong").statusCode(), is(401));
+    }
+
+    @Test
+    public void answersLoginsThatOutlastTheTimeoutWithAnError() throws Exception {
+        LDAP.setLatency(Duration.seconds(1));
+        try {
+            final long start = System.nanoTime();
+            assertThat(get("/protected/whoami", "bob", "bob-secret").statusCode(), is(500));
+            assertThat(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000), is(true));
+        } finally {
+            LDAP.setLatency(Duration.milliseconds(0));
+        }
+    }
+
+    @Test
+    public void leavesRequestsOutsideTheUrlPatternsAlone() throws Exception {
+        final int binds = LDAP.getBindCount();
+        assertThat(get("/open", "alice", "alice-secret").statusCode(), is(200));
+        assertThat(LDAP.getBindCount(), is(binds));
+    }
+
+    @Test
+    public void checksHealthByConnectingWhenProbingIsDisabled() {
+        assertThat(APP.getEnvironment().healthChecks().runHealthCheck("ldap").isHealthy(), is(true));
+    }
+
+    private static HttpResponse<String> get(String path, String user, String password) throws Exception {
+        final String credentials = Base64.getEncoder()
+                .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + APP.getLocalPort() + path))
+                .header("Authorization", "Basic " + credentials)
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public static class TestApplication extends Application<TestConfiguration> {
+        @Override
+        public void initialize(Bootstrap<TestConfiguration> bootstrap) {
+            bootstrap.addBundle(new LdapAuthenticatorBundle<TestConfiguration>() {
+                @Override
+                public LdapConfiguration getConfiguration(TestConfiguration configuration) {
+                    return configuration.getLdap();
+                }
+            });
+        }
+
+        @Override
+        public void run(TestConfiguration configuration, Environment environment) {
+            environment.jersey().register(new ProtectedResource());
+            environment.jersey().register(new OpenResource());
+        }
+    }
+
+    @Path("/protected/whoami")
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class ProtectedResource {
+        @GET
+        @LdapRolesAllowed("users")
+        public String whoami(@LdapAuth LdapUser user) {
+            return user.getName();
+        }
+    }
+
+    @Path("/open")
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class OpenResource {
+        @GET
+        public String open() {
+            return "open";
+        }
+    }
+}
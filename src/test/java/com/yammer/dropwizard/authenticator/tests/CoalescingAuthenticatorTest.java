@@ -0,0 +1,105 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.CoalescingAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class CoalescingAuthenticatorTest {
+
+    @Test
+    public void concurrentLoginsShareOneCall() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Authenticator<BasicCredentials, LdapUser> slow = credentials -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AuthenticationException(e);
+            }
+            return Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")));
+        };
+        final MetricRegistry metrics = new MetricRegistry();
+        final CoalescingAuthenticator<BasicCredentials, LdapUser> authenticator =
+                new CoalescingAuthenticator<>(metrics, slow, Duration.seconds(5));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Optional<LdapUser>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> authenticator.authenticate(new BasicCredentials("user", "password"))));
+            }
+            while (coalescedCount(metrics) < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<Optional<LdapUser>> result : results) {
+                assertThat(result.get().map(LdapUser::getName), is(Optional.of("user")));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(calls.get(), is(1));
+    }
+
+    private static long coalescedCount(MetricRegistry metrics) {
+        return metrics.getMeters((name, metric) -> name.endsWith("coalescing.coalesced")).values().stream()
+                .mapToLong(Meter::getCount)
+                .sum();
+    }
+
+    @Test
+    public void waitersThatTimeOutAuthenticateOnTheirOwn() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Authenticator<BasicCredentials, LdapUser> firstCallStalls = credentials -> {
+            if (calls.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AuthenticationException(e);
+                }
+            }
+            return Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")));
+        };
+        final CoalescingAuthenticator<BasicCredentials, LdapUser> authenticator =
+                new CoalescingAuthenticator<>(new MetricRegistry(), firstCallStalls, Duration.milliseconds(50));
+        final Thread leader = new Thread(() -> {
+            try {
+                authenticator.authenticate(new BasicCredentials("user", "password"));
+            } catch (AuthenticationException ignored) {
+                // not under test
+            }
+        });
+        leader.start();
+        started.await();
+        try {
+            assertThat(authenticator.authenticate(new BasicCredentials("user", "password")).map(LdapUser::getName),
+                    is(Optional.of("user")));
+            assertThat(calls.get(), is(2));
+        } finally {
+            release.countDown();
+            leader.join();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.CredentialCacheConfiguration;
+import com.yammer.dropwizard.authenticator.CredentialCachingAuthenticator;
+import com.yammer.dropwizard.authenticator.CredentialDigester;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.naming.ServiceUnavailableException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CredentialCachingAuthenticatorTest {
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private CredentialCachingAuthenticator authenticator;
+
+    @Before
+    public void setup() {
+        final Authenticator<BasicCredentials, LdapUser> ldap = credentials -> {
+            calls.incrementAndGet();
+            return "secret".equals(credentials.getPassword())
+                    ? Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")))
+                    : Optional.empty();
+        };
+        final CredentialCacheConfiguration configuration = new CredentialCacheConfiguration()
+                .setMaximumSize(1000)
+                .setPositiveTtl(Duration.minutes(5))
+                .setNegativeTtl(Duration.seconds(10));
+        authenticator = new CredentialCachingAuthenticator(new MetricRegistry(), ldap, configuration,
+                new CredentialDigester(), now::get);
+    }
+
+    @Test
+    public void cachesSuccessfulLogins() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(authenticator.authenticate(new BasicCredentials("user", "secret")).isPresent(), is(true));
+        }
+        assertThat(calls.get(), is(1));
+        assertThat(authenticator.stats().hitCount(), is(2L));
+    }
+
+    @Test
+    public void differentPasswordIsADifferentEntry() throws Exception {
+        authenticator.authenticate(new BasicCredentials("user", "secret"));
+        assertThat(authenticator.authenticate(new BasicCredentials("user", "wrong")).isPresent(), is(false));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void failuresExpireBeforeSuccesses() throws Exception {
+        authenticator.authenticate(new BasicCredentials("user", "secret"));
+        authenticator.authenticate(new BasicCredentials("user", "wrong"));
+        authenticator.authenticate(new BasicCredentials("user", "wrong"));
+        assertThat(calls.get(), is(2));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        authenticator.authenticate(new BasicCredentials("user", "secret"));
+        authenticator.authenticate(new BasicCredentials("user", "wrong"));
+        assertThat(calls.get(), is(3));
+    }
+
+    @Test
+    public void servesExpiredLoginsWhileTheDirectoryIsUnreachable() throws Exception {
+        final AtomicInteger outage = new AtomicInteger();
+        final Authenticator<BasicCredentials, LdapUser> ldap = credentials -> {
+            if (outage.get() > 0) {
+                throw new AuthenticationException("LDAP Authentication failure",
+                        new ServiceUnavailableException("LDAP circuit breaker is open"));
+            }
+            return Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")));
+        };
+        final CredentialCachingAuthenticator stale = new CredentialCachingAuthenticator(new MetricRegistry(), ldap,
+                new CredentialCacheConfiguration().setMaximumSize(1000).setPositiveTtl(Duration.minutes(1)),
+                new CredentialDigester(), Duration.minutes(10), now::get);
+        stale.authenticate(new BasicCredentials("user", "secret"));
+
+        outage.set(1);
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertThat(stale.authenticate(new BasicCredentials("user", "secret")).isPresent(), is(true));
+        try {
+            stale.authenticate(new BasicCredentials("other", "secret"));
+            fail("a login never verified before must not be accepted");
+        } catch (AuthenticationException expected) {
+            // the outage is reported as usual
+        }
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        try {
+            stale.authenticate(new BasicCredentials("user", "secret"));
+            fail("the grace period has passed");
+        } catch (AuthenticationException expected) {
+            // the outage is reported as usual
+        }
+    }
+
+    @Test
+    public void refreshesAgingLoginsInTheBackground() throws Exception {
+        final List<Runnable> refreshes = new ArrayList<>();
+        final CredentialCachingAuthenticator refreshing = refreshingAuthenticator(refreshes::add);
+        final BasicCredentials user = new BasicCredentials("user", "secret");
+        refreshing.authenticate(user);
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertThat(refreshing.authenticate(user).isPresent(), is(true));
+        assertThat(refreshing.authenticate(user).isPresent(), is(true));
+        assertThat(calls.get(), is(1));
+        assertThat(refreshes.size(), is(1));
+
+        refreshes.remove(0).run();
+        assertThat(calls.get(), is(2));
+
+        // four minutes after the refresh, seven after the first login: still cached
+        now.addAndGet(TimeUnit.MINUTES.toNanos(4));
+        assertThat(refreshing.authenticate(user).isPresent(), is(true));
+        assertThat(calls.get(), is(2));
+        assertThat(refreshes.size(), is(1));
+
+        // the refresh never ran and the hard TTL has passed
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        refreshing.authenticate(user);
+        assertThat(calls.get(), is(3));
+    }
+
+    @Test
+    public void dropsLoginsThatFailToRefresh() throws Exception {
+        final List<Runnable> refreshes = new ArrayList<>();
+        final AtomicInteger passwordChanged = new AtomicInteger();
+        final Authenticator<BasicCredentials, LdapUser> ldap = credentials -> {
+            calls.incrementAndGet();
+            return passwordChanged.get() == 0
+                    ? Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")))
+                    : Optional.empty();
+        };
+        final CredentialCachingAuthenticator refreshing = new CredentialCachingAuthenticator(new MetricRegistry(),
+                ldap, refreshingConfiguration(), new CredentialDigester(), Duration.seconds(0), now::get, refreshes::add);
+        final BasicCredentials user = new BasicCredentials("user", "secret");
+        refreshing.authenticate(user);
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        passwordChanged.set(1);
+        assertThat(refreshing.authenticate(user).isPresent(), is(true));
+        refreshes.remove(0).run();
+        // the failed refresh is cached like any other failure
+        assertThat(refreshing.authenticate(user).isPresent(), is(false));
+        assertThat(calls.get(), is(2));
+    }
+
+    private CredentialCachingAuthenticator refreshingAuthenticator(Executor executor) {
+        final Authenticator<BasicCredentials, LdapUser> ldap = credentials -> {
+            calls.incrementAndGet();
+            return Optional.of(new LdapUser(credentials.getUsername(), ImmutableSet.of("users")));
+        };
+        return new CredentialCachingAuthenticator(new MetricRegistry(), ldap, refreshingConfiguration(),
+                new CredentialDigester(), Duration.seconds(0), now::get, executor);
+    }
+
+    private static CredentialCacheConfiguration refreshingConfiguration() {
+        return new CredentialCacheConfiguration()
+                .setMaximumSize(1000)
+                .setPositiveTtl(Duration.minutes(5))
+                .setNegativeTtl(Duration.seconds(10))
+                .setRefreshAfter(Duration.minutes(1));
+    }
+}
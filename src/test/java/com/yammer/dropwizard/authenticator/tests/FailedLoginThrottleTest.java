@@ -0,0 +1,97 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.yammer.dropwizard.authenticator.CredentialDigester;
+import com.yammer.dropwizard.authenticator.FailedLoginConfiguration;
+import com.yammer.dropwizard.authenticator.FailedLoginThrottle;
+import io.dropwizard.util.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class FailedLoginThrottleTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void rejectsRecentlyFailedCredentials() {
+        final FailedLoginThrottle throttle = new FailedLoginThrottle(new FailedLoginConfiguration()
+                .setNegativeCacheTtl(Duration.seconds(30)), new CredentialDigester(), now::get);
+        throttle.recordFailure("user", "wrong");
+
+        assertThat(throttle.isRejected("user", "wrong"), is(true));
+        assertThat(throttle.isRejected("user", "right"), is(false));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertThat(throttle.isRejected("user", "wrong"), is(false));
+    }
+
+    @Test
+    public void throttlesUsersWithRepeatedFailures() {
+        final FailedLoginThrottle throttle = new FailedLoginThrottle(new FailedLoginConfiguration()
+                .setNegativeCacheTtl(Duration.seconds(0))
+                .setMaxFailuresPerUser(3)
+                .setFailureWindow(Duration.minutes(1)), new CredentialDigester(), now::get);
+        for (int i = 0; i < 3; i++) {
+            assertThat(throttle.isRejected("user", "attempt" + i), is(false));
+            throttle.recordFailure("user", "attempt" + i);
+        }
+
+        assertThat(throttle.isRejected("user", "right"), is(true));
+        assertThat(throttle.isRejected("someone-else", "right"), is(false));
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertThat(throttle.isRejected("user", "right"), is(false));
+    }
+
+    @Test
+    public void aSuccessfulLoginClearsTheUsersFailures() {
+        final FailedLoginThrottle throttle = new FailedLoginThrottle(new FailedLoginConfiguration()
+                .setNegativeCacheTtl(Duration.seconds(0))
+                .setMaxFailuresPerUser(3)
+                .setFailureWindow(Duration.minutes(1)), new CredentialDigester(), now::get);
+        for (int i = 0; i < 2; i++) {
+            throttle.recordFailure("user", "attempt" + i);
+        }
+        throttle.recordSuccess("user");
+        throttle.recordFailure("user", "attempt2");
+
+        assertThat(throttle.isRejected("user", "right"), is(false));
+    }
+
+    @Test
+    public void decaysOncePerWindowWhenCheckedBetweenWindows() {
+        final FailedLoginThrottle throttle = new FailedLoginThrottle(new FailedLoginConfiguration()
+                .setNegativeCacheTtl(Duration.seconds(0))
+                .setMaxFailuresPerUser(3)
+                .setFailureWindow(Duration.minutes(1)), new CredentialDigester(), now::get);
+        for (int i = 0; i < 6; i++) {
+            throttle.recordFailure("user", "attempt" + i);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        assertThat(throttle.isRejected("user", "right"), is(true));
+        // the second window ends two minutes in, not two and a half
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(throttle.isRejected("user", "right"), is(false));
+    }
+
+    @Test
+    public void usersWhoseNamesShareAHashCodeAreCountedApart() {
+        assertThat("Aa".hashCode() == "BB".hashCode(), is(true));
+        final FailedLoginThrottle throttle = new FailedLoginThrottle(new FailedLoginConfiguration()
+                .setNegativeCacheTtl(Duration.seconds(0))
+                .setMaxFailuresPerUser(3)
+                .setFailureWindow(Duration.minutes(1)), new CredentialDigester(), now::get);
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("Aa", "attempt" + i);
+        }
+
+        assertThat(throttle.isRejected("Aa", "right"), is(true));
+        assertThat(throttle.isRejected("BB", "right"), is(false));
+
+        throttle.recordFailure("BB", "attempt");
+        assertThat(throttle.isRejected("BB", "right"), is(false));
+    }
+}
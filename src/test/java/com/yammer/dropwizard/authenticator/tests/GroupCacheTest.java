@@ -0,0 +1,139 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.GroupCacheConfiguration;
+import com.yammer.dropwizard.authenticator.GroupCacheStatistics;
+import com.yammer.dropwizard.authenticator.GroupCacheTask;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import io.dropwizard.util.DataSize;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GroupCacheTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Test
+    public void evictsByMemberCount() {
+        // admins weighs 2 (one member), users 3 (two members)
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(
+                new GroupCacheConfiguration().setMaximumMembers(4)))) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            assertThat(authenticator.getGroupCacheStatistics().size(), is(1));
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+            assertThat(authenticator.getGroupCacheStatistics().size(), is(1));
+        }
+    }
+
+    @Test
+    public void evictsByEstimatedMemory() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(
+                new GroupCacheConfiguration().setMaximumMemory(DataSize.kibibytes(1))))) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+            assertThat(authenticator.getGroupCacheStatistics().size(), is(2));
+        }
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(
+                new GroupCacheConfiguration().setMaximumMemory(DataSize.bytes(400))))) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+            assertThat(authenticator.getGroupCacheStatistics().size(), is(1));
+        }
+    }
+
+    @Test
+    public void reportsPerGroupStatistics() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(new GroupCacheConfiguration()))) {
+            for (int i = 0; i < 3; i++) {
+                authenticator.isValidUser("alice", "users");
+            }
+            authenticator.isValidUser("alice", "admins");
+
+            final List<GroupCacheStatistics.GroupStats> groups = authenticator.getGroupCacheStatistics();
+            assertThat(groups.get(0).getGroup(), is("users"));
+            assertThat(groups.get(0).getMembers(), is(2));
+            assertThat(groups.get(0).getHits(), is(2L));
+            assertThat(groups.get(0).getLoads(), is(1L));
+            assertThat(groups.get(0).getLastLoadNanos() > 0, is(true));
+            assertThat(groups.get(0).getEstimatedBytes() > groups.get(1).getEstimatedBytes(), is(true));
+
+            final StringWriter output = new StringWriter();
+            new GroupCacheTask(authenticator).execute(ImmutableMap.of("limit", ImmutableList.of("1")),
+                    new PrintWriter(output));
+            assertThat(output.toString(), containsString("2 groups, 3 members"));
+            assertThat(output.toString(), containsString("users\t2\t"));
+            assertThat(output.toString().contains("admins\t"), is(false));
+
+            for (String limit : List.of("ten", "-1")) {
+                final StringWriter usage = new StringWriter();
+                new GroupCacheTask(authenticator).execute(ImmutableMap.of("limit", ImmutableList.of(limit)),
+                        new PrintWriter(usage));
+                assertThat(usage.toString(), containsString("Invalid limit '" + limit + "'"));
+                assertThat(usage.toString(), containsString("Usage: POST /tasks/ldap-group-cache"));
+                assertThat(usage.toString().contains("users\t"), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void loadsMissingGroupsTogether() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(new GroupCacheConfiguration()))) {
+            final int searches = ldap.getSearchCount();
+            assertThat(authenticator.rolesOf("alice", List.of("admins", "Users", "missing")),
+                    is(ImmutableSet.of("admins", "Users")));
+            assertThat(ldap.getSearchCount() - searches, is(1));
+
+            assertThat(authenticator.isValidUser("bob", List.of("admins", "missing")), is(false));
+            assertThat(authenticator.isValidUser("bob", List.of("Users", "missing")), is(true));
+            assertThat(authenticator.isValidUser("bob", "admins"), is(false));
+            assertThat(ldap.getSearchCount() - searches, is(1));
+        }
+    }
+
+    @Test
+    public void escapesGroupNamesWhetherLoadedAloneOrTogether() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(new GroupCacheConfiguration()))) {
+            assertThat(authenticator.isValidUser("bob", "*"), is(false));
+            assertThat(ldap.getLastSearchFilter(), is("(&(cn=\\2a)(objectClass=posixGroup))"));
+
+            assertThat(authenticator.rolesOf("bob", List.of("u*", "(users)")), is(ImmutableSet.of()));
+            assertThat(ldap.getLastSearchFilter(), is("(&(objectClass=posixGroup)(|(cn=u\\2a)(cn=\\28users\\29)))"));
+        }
+    }
+
+    @Test
+    public void splitsLargeBulkLoadsIntoSeveralSearches() {
+        final List<String> roles = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            roles.add("role" + i);
+        }
+        roles.add("users");
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(new GroupCacheConfiguration()))) {
+            final int searches = ldap.getSearchCount();
+            assertThat(authenticator.rolesOf("bob", roles), is(ImmutableSet.of("users")));
+            assertThat(ldap.getSearchCount() - searches, is(3));
+            assertThat(authenticator.getGroupCacheStatistics().size(), is(100));
+        }
+    }
+
+    private LdapConfiguration configuration(GroupCacheConfiguration groupCache) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false))
+                .setGroupCache(groupCache)
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100,expireAfterWrite=10m"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.yammer.dropwizard.authenticator.GroupChangeSync;
+import com.yammer.dropwizard.authenticator.GroupSyncConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GroupChangeSyncTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Test
+    public void appliesChangedGroupsToTheCache() throws Exception {
+        final LdapConfiguration configuration = new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100"))
+                .setGroupSync(new GroupSyncConfiguration()
+                        .setEnabled(true)
+                        .setInterval(Duration.milliseconds(50))
+                        .setFullResyncInterval(Duration.milliseconds(500)));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration)) {
+            assertThat(authenticator.isValidUser("bob", "admins"), is(false));
+            assertThat(authenticator.isValidUser("alice", "users"), is(true));
+
+            ldap.getServer().modify("cn=admins,ou=groups,dc=example,dc=com",
+                    new Modification(ModificationType.ADD, "memberUid", "bob"));
+            eventually(() -> authenticator.isValidUser("bob", "admins"));
+
+            // deletions are only visible to the periodic full resync
+            ldap.getServer().delete("cn=users,ou=groups,dc=example,dc=com");
+            eventually(() -> !authenticator.isValidUser("alice", "users"));
+        }
+    }
+
+    @Test
+    public void keepsGroupsWhoseNamesDifferInCaseOrHaveSpaces() throws Exception {
+        ldap.getServer().add("dn: cn=Domain Users,ou=groups," + InMemoryLdap.BASE_DN, "objectClass: posixGroup",
+                "cn: Domain Users", "memberUid: alice");
+        final LdapConfiguration configuration = new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100"))
+                .setGroupSync(new GroupSyncConfiguration()
+                        .setEnabled(true)
+                        .setInterval(Duration.milliseconds(20))
+                        .setFullResyncInterval(Duration.milliseconds(20)));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration)) {
+            assertThat(authenticator.isValidUser("alice", "ADMINS"), is(true));
+            assertThat(authenticator.isValidUser("alice", "Domain Users"), is(true));
+            final int searches = ldap.getSearchCount();
+            eventually(() -> ldap.getSearchCount() >= searches + 3); // several full syncs
+
+            assertThat(authenticator.isValidUser("alice", "ADMINS"), is(true));
+            assertThat(authenticator.isValidUser("alice", "Domain Users"), is(true));
+        }
+    }
+
+    @Test
+    public void onlyAsksForChangesOnceTimestampsAreKnown() {
+        final Cache<String, Set<String>> cache = Caffeine.newBuilder().build();
+        cache.put("admins", ImmutableSet.of("alice"));
+        final List<String> requests = new ArrayList<>();
+        final GroupChangeSync.Fetcher fetcher = (groups, changedSince) -> {
+            requests.add(String.valueOf(changedSince));
+            return changedSince == null
+                    ? ImmutableMap.of("admins", new GroupChangeSync.GroupEntry(ImmutableSet.of("alice"), "20260101000000Z"))
+                    : ImmutableMap.of("admins", new GroupChangeSync.GroupEntry(ImmutableSet.of("alice", "bob"), "20260102000000Z"));
+        };
+        try (GroupChangeSync sync = new GroupChangeSync(new GroupSyncConfiguration().setInterval(Duration.days(1)), cache, fetcher)) {
+            sync.sync();
+            sync.sync();
+            sync.sync();
+        }
+        assertThat(requests.toString(), is("[null, 20260101000000Z, 20260102000000Z]"));
+        assertThat(cache.getIfPresent("admins"), is(ImmutableSet.of("alice", "bob")));
+    }
+
+    @Test
+    public void fallsBackToFullReloadsWithoutTimestamps() {
+        final Cache<String, Set<String>> cache = Caffeine.newBuilder().build();
+        cache.put("admins", ImmutableSet.of("alice"));
+        cache.put("gone", ImmutableSet.of("alice"));
+        final List<String> requests = new ArrayList<>();
+        final GroupChangeSync.Fetcher fetcher = (groups, changedSince) -> {
+            requests.add(String.valueOf(changedSince));
+            return ImmutableMap.of("admins", new GroupChangeSync.GroupEntry(ImmutableSet.of("bob"), null));
+        };
+        try (GroupChangeSync sync = new GroupChangeSync(new GroupSyncConfiguration().setInterval(Duration.days(1)), cache, fetcher)) {
+            sync.sync();
+            sync.sync();
+        }
+        assertThat(requests.toString(), is("[null, null]"));
+        assertThat(cache.getIfPresent("admins"), is(ImmutableSet.of("bob")));
+        assertThat(cache.getIfPresent("gone"), is(ImmutableSet.of()));
+        assertThat(cache.getIfPresent("unknown"), is(nullValue()));
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.yammer.dropwizard.authenticator.GroupMembershipIndex;
+import com.yammer.dropwizard.authenticator.GroupSnapshotConfiguration;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GroupMembershipIndexTest {
+    private static final String ADMINS = "cn=admins,ou=groups,dc=example,dc=com";
+
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Test
+    public void indexesUsersByGroup() throws Exception {
+        try (GroupMembershipIndex index = new GroupMembershipIndex(snapshot(Duration.minutes(5)), this::loadGroups)) {
+            await(() -> index.groupsOf("alice").isPresent());
+            assertThat(index.groupsOf("alice"), is(Optional.of(ImmutableSet.of("admins", "users"))));
+            assertThat(index.groupsOf("bob"), is(Optional.of(ImmutableSet.of("users"))));
+            assertThat(index.groupsOf("nobody"), is(Optional.of(ImmutableSet.of())));
+        }
+    }
+
+    @Test
+    public void matchesUserNamesIgnoringCase() throws Exception {
+        try (GroupMembershipIndex index = new GroupMembershipIndex(snapshot(Duration.minutes(5)), this::loadGroups)) {
+            await(() -> index.groupsOf("alice").isPresent());
+            assertThat(index.groupsOf("Alice"), is(Optional.of(ImmutableSet.of("admins", "users"))));
+            assertThat(index.groupsOf("BOB"), is(Optional.of(ImmutableSet.of("users"))));
+        }
+    }
+
+    @Test
+    public void picksUpChangesOnRefresh() throws Exception {
+        try (GroupMembershipIndex index = new GroupMembershipIndex(snapshot(Duration.minutes(5)), this::loadGroups)) {
+            await(() -> index.groupsOf("bob").isPresent());
+            ldap.getServer().modify(ADMINS, new Modification(ModificationType.ADD, "memberUid", "bob"));
+            assertThat(index.groupsOf("bob"), is(Optional.of(ImmutableSet.of("users"))));
+
+            index.refresh();
+            assertThat(index.groupsOf("bob"), is(Optional.of(ImmutableSet.of("admins", "users"))));
+        }
+    }
+
+    @Test
+    public void keepsTheLastSnapshotWhenARefreshFails() throws Exception {
+        final AtomicBoolean failing = new AtomicBoolean();
+        final GroupMembershipIndex.Loader loader = () -> {
+            if (failing.get()) {
+                throw new ServiceUnavailableException("down");
+            }
+            return loadGroups();
+        };
+        try (GroupMembershipIndex index = new GroupMembershipIndex(snapshot(Duration.minutes(5)), loader)) {
+            await(() -> index.groupsOf("alice").isPresent());
+            failing.set(true);
+            index.refresh();
+            assertThat(index.groupsOf("alice"), is(Optional.of(ImmutableSet.of("admins", "users"))));
+        }
+    }
+
+    @Test
+    public void answersNothingOnceTheSnapshotIsTooStale() throws Exception {
+        try (GroupMembershipIndex index = new GroupMembershipIndex(snapshot(Duration.milliseconds(100)), this::loadGroups)) {
+            await(() -> index.groupsOf("alice").isPresent());
+            await(() -> !index.groupsOf("alice").isPresent());
+
+            index.refresh();
+            assertThat(index.groupsOf("alice"), is(Optional.of(ImmutableSet.of("admins", "users"))));
+        }
+    }
+
+    @Test
+    public void authorizesLoginsFromTheSnapshot() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(Duration.minutes(5)))) {
+            await(() -> searchesFor(authenticator, "alice", "alice-secret") == 0);
+            final int searches = ldap.getSearchCount();
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            assertThat(authenticator.authenticate(new BasicCredentials("Alice", "alice-secret")), is(true));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(false));
+            assertThat(ldap.getSearchCount() - searches, is(0));
+        }
+    }
+
+    @Test
+    public void searchesLdapWhenTheSnapshotIsTooStale() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(Duration.milliseconds(100)))) {
+            await(() -> ldap.getSearchCount() > 0);
+            Thread.sleep(200);
+            final int searches = ldap.getSearchCount();
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(false));
+            assertThat(ldap.getSearchCount() - searches > 0, is(true));
+        }
+    }
+
+    private Map<String, Set<String>> loadGroups() throws NamingException {
+        try {
+            final Map<String, Set<String>> membersByGroup = new HashMap<>();
+            for (SearchResultEntry group : ldap.getServer().search("ou=groups," + InMemoryLdap.BASE_DN,
+                    SearchScope.ONE, "(objectClass=posixGroup)", "cn", "memberUid").getSearchEntries()) {
+                final String[] members = group.getAttributeValues("memberUid");
+                membersByGroup.put(group.getAttributeValue("cn"),
+                        members == null ? ImmutableSet.of() : ImmutableSet.copyOf(members));
+            }
+            return membersByGroup;
+        } catch (LDAPException e) {
+            throw new ServiceUnavailableException(e.getMessage());
+        }
+    }
+
+    private int searchesFor(LdapAuthenticator authenticator, String user, String password) {
+        final int searches = ldap.getSearchCount();
+        try {
+            authenticator.authenticate(new BasicCredentials(user, password));
+        } catch (Exception e) {
+            return -1;
+        }
+        return ldap.getSearchCount() - searches;
+    }
+
+    private LdapConfiguration configuration(Duration maxStaleness) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .addRestrictedGroup("admins")
+                .setGroupSnapshot(snapshot(maxStaleness).setEnabled(true))
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false));
+    }
+
+    private static GroupSnapshotConfiguration snapshot(Duration maxStaleness) {
+        return new GroupSnapshotConfiguration()
+                .setRefreshInterval(Duration.hours(1))
+                .setMaxStaleness(maxStaleness);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() < deadline, is(true));
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.yammer.dropwizard.authenticator.GroupResolutionStrategy;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.basic.BasicCredentials;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GroupResolutionTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Before
+    public void maintainMemberOf() throws Exception {
+        ldap.getServer().modify("cn=alice,ou=people,dc=example,dc=com", new Modification(ModificationType.ADD, "memberOf",
+                "cn=admins,ou=groups,dc=example,dc=com",
+                "cn=users,ou=groups,dc=example,dc=com",
+                "cn=elsewhere,ou=lists,dc=example,dc=com"));
+        ldap.getServer().modify("cn=bob,ou=people,dc=example,dc=com", new Modification(ModificationType.ADD, "memberOf",
+                "cn=users,ou=groups,dc=example,dc=com"));
+    }
+
+    @Test
+    public void readsGroupsFromTheUserEntry() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(GroupResolutionStrategy.MEMBER_OF))) {
+            final int searches = ldap.getSearchCount();
+            final Optional<LdapUser> alice = authenticator.authenticateAndReturnPermittedGroups(
+                    new BasicCredentials("alice", "alice-secret"));
+            assertThat(alice.get().getRoles(), is(ImmutableSet.of("admins", "users")));
+            assertThat(ldap.getSearchCount() - searches, is(1));
+            assertThat(ldap.getLastSearchFilter(), is("(objectClass=*)"));
+        }
+    }
+
+    @Test
+    public void restrictsMemberOfGroups() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(GroupResolutionStrategy.MEMBER_OF)
+                .addRestrictedGroup("admins"))) {
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(false));
+            assertThat(authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret"))
+                    .get().getRoles(), is(ImmutableSet.of("admins")));
+        }
+    }
+
+    @Test
+    public void asksForGroupsInChain() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(
+                configuration(GroupResolutionStrategy.MATCHING_RULE_IN_CHAIN).addRestrictedGroup("admins"))) {
+            try {
+                authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret"));
+            } catch (AuthenticationException e) {
+                // the in-memory server does not implement the matching rule
+            }
+            assertThat(ldap.getLastSearchFilter(), is("(&(memberUid:1.2.840.113556.1.4.1941:="
+                    + "cn=alice,ou=people,dc=example,dc=com)(objectClass=posixGroup)(|(cn=admins)))"));
+        }
+    }
+
+    private LdapConfiguration configuration(GroupResolutionStrategy strategy) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setGroupResolution(strategy)
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false));
+    }
+}
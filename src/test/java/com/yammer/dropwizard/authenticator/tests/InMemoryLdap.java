@@ -0,0 +1,229 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSearchRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSimpleBindRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ReadOnlySearchRequest;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.util.ssl.KeyStoreKeyManager;
+import com.unboundid.util.ssl.SSLUtil;
+import io.dropwizard.util.Duration;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import org.junit.rules.ExternalResource;
+
+/**
+ * An in-process LDAP server for tests, seeded from an LDIF resource on the classpath, that can be told to answer
+ * slowly or fail. Use it as a JUnit rule or call {@link #start()} and {@link #stop()} directly.
+ * <p>
+ * The default seed ({@value #DEFAULT_LDIF}) has users {@code alice} and {@code bob} (passwords
+ * {@code alice-secret} and {@code bob-secret}) under {@code ou=people,dc=example,dc=com}, and posix groups
+ * {@code admins} (alice) and {@code users} (alice, bob) under {@code ou=groups,dc=example,dc=com}.
+ */
+public class InMemoryLdap extends ExternalResource {
+    public static final String DEFAULT_LDIF = "/ldap/directory.ldif";
+    public static final String BASE_DN = "dc=example,dc=com";
+
+    private final String ldifResource;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger binds = new AtomicInteger();
+    private final AtomicInteger searches = new AtomicInteger();
+    private volatile long latencyMillis = 0;
+    private volatile double failureRate = 0;
+    private volatile String lastSearchFilter;
+    private final List<ReadOnlySearchRequest> searchRequests = new CopyOnWriteArrayList<>();
+    private final List<Long> searchConnectionIds = new CopyOnWriteArrayList<>();
+    private volatile File keyStore;
+    private volatile String keyStorePassword;
+    private InMemoryDirectoryServer server;
+
+    public InMemoryLdap() {
+        this(DEFAULT_LDIF);
+    }
+
+    public InMemoryLdap(String ldifResource) {
+        this.ldifResource = ldifResource;
+    }
+
+    public void start() throws Exception {
+        final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+        config.setListenerConfigs(keyStore == null
+                ? InMemoryListenerConfig.createLDAPConfig("ldap", 0)
+                : InMemoryListenerConfig.createLDAPSConfig("ldaps", 0, new SSLUtil(new KeyStoreKeyManager(keyStore,
+                        keyStorePassword.toCharArray(), "PKCS12", null), null).createSSLServerSocketFactory()));
+        config.setSchema(null);
+        config.addInMemoryOperationInterceptor(new InMemoryOperationInterceptor() {
+            @Override
+            public void processSimpleBindRequest(InMemoryInterceptedSimpleBindRequest request) throws LDAPException {
+                binds.incrementAndGet();
+                misbehave();
+            }
+
+            @Override
+            public void processSearchRequest(InMemoryInterceptedSearchRequest request) throws LDAPException {
+                searches.incrementAndGet();
+                lastSearchFilter = request.getRequest().getFilter().toString();
+                searchRequests.add(request.getRequest().duplicate());
+                searchConnectionIds.add(request.getConnectionID());
+                misbehave();
+            }
+        });
+        config.setAccessLogHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                final String message = record.getMessage();
+                if (message.contains("] CONNECT ")) {
+                    connections.incrementAndGet();
+                    openConnections.incrementAndGet();
+                } else if (message.contains("] DISCONNECT ")) {
+                    openConnections.decrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        server = new InMemoryDirectoryServer(config);
+        try (InputStream ldif = InMemoryLdap.class.getResourceAsStream(ldifResource)) {
+            if (ldif == null) {
+                throw new IllegalArgumentException("No LDIF resource " + ldifResource);
+            }
+            server.importFromLDIF(true, new LDIFReader(ldif));
+        }
+        server.startListening();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.shutDown(true);
+            server = null;
+        }
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        start();
+    }
+
+    @Override
+    protected void after() {
+        stop();
+    }
+
+    private void misbehave() throws LDAPException {
+        final long latency = latencyMillis;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final double rate = failureRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            throw new LDAPException(ResultCode.UNAVAILABLE, "injected failure");
+        }
+    }
+
+    public URI getUri() {
+        return URI.create((keyStore == null ? "ldap" : "ldaps") + "://localhost:" + server.getListenPort());
+    }
+
+    /**
+     * Serves LDAPS with the certificate in this PKCS12 key store, from the next {@link #start()}.
+     */
+    public InMemoryLdap setKeyStore(File keyStore, String password) {
+        this.keyStore = keyStore;
+        this.keyStorePassword = password;
+        return this;
+    }
+
+    public InMemoryDirectoryServer getServer() {
+        return server;
+    }
+
+    /**
+     * Delays every bind and search by {@code latency}.
+     */
+    public InMemoryLdap setLatency(Duration latency) {
+        this.latencyMillis = latency.toMilliseconds();
+        return this;
+    }
+
+    /**
+     * Fails this share of binds and searches with {@code unavailable}, which clients treat as the server being down.
+     */
+    public InMemoryLdap setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * Adds {@code count} users {@code <prefix>0}... with passwords {@code <prefix>0-secret}... as members of
+     * {@code group}, which is created if needed.
+     */
+    public void addUsers(String prefix, int count, String group) throws LDAPException, LDIFException {
+        final String groupDn = "cn=" + group + ",ou=groups," + BASE_DN;
+        if (server.getEntry(groupDn) == null) {
+            server.add("dn: " + groupDn, "objectClass: posixGroup", "cn: " + group);
+        }
+        final List<String> modification = new ArrayList<>(List.of("dn: " + groupDn, "changetype: modify", "add: memberUid"));
+        for (int i = 0; i < count; i++) {
+            server.add("dn: cn=" + prefix + i + ",ou=people," + BASE_DN, "objectClass: person",
+                    "cn: " + prefix + i, "sn: " + prefix + i, "userPassword: " + prefix + i + "-secret");
+            modification.add("memberUid: " + prefix + i);
+        }
+        server.modify(modification.toArray(new String[0]));
+    }
+
+    /** Connections accepted since the server started. */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    public int getBindCount() {
+        return binds.get();
+    }
+
+    public int getSearchCount() {
+        return searches.get();
+    }
+
+    public String getLastSearchFilter() {
+        return lastSearchFilter;
+    }
+
+    /** Every search received since the server started, oldest first. */
+    public List<ReadOnlySearchRequest> getSearchRequests() {
+        return List.copyOf(searchRequests);
+    }
+
+    /** The connection each of {@link #getSearchRequests()} arrived on. */
+    public List<Long> getSearchConnectionIds() {
+        return List.copyOf(searchConnectionIds);
+    }
+}
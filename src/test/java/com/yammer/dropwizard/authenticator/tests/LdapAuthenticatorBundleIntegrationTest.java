@@ -0,0 +1,258 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yammer.dropwizard.authenticator.CredentialCachingAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapAuthenticatorBundle;
+import com.yammer.dropwizard.authenticator.LdapCanAuthenticate;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.auth.LdapAuth;
+import io.dropwizard.auth.LdapRolesAllowed;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.dropwizard.util.Duration;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+/**
+ * Drives {@link LdapAuthenticatorBundle} in a running application against {@link InMemoryLdap}.
+ */
+public class LdapAuthenticatorBundleIntegrationTest {
+    private static final int USERS = 200;
+    private static final int CLIENTS = 50;
+
+    private static final InMemoryLdap LDAP = new InMemoryLdap();
+    private static final DropwizardAppRule<TestConfiguration> APP = new DropwizardAppRule<>(TestApplication.class,
+            ResourceHelpers.resourceFilePath("integration.yml"),
+            ConfigOverride.config("ldap.uri", () -> LDAP.getUri().toString()));
+
+    @ClassRule
+    public static final RuleChain RULES = RuleChain.outerRule(LDAP).around(APP);
+
+    private static HttpClient client;
+    private static ExecutorService clients;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        LDAP.addUsers("load", USERS, "users");
+        clients = Executors.newFixedThreadPool(CLIENTS);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLoginsAreFastPooledAndCached() throws Exception {
+        LDAP.setLatency(Duration.milliseconds(5));
+        try {
+            final List<String> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                users.add("load" + i);
+            }
+            final int connectionsBefore = LDAP.getConnectionCount();
+            final List<Long> firstRound = loginConcurrently(users);
+            final int bindsAfterFirstRound = LDAP.getBindCount();
+            final List<Long> secondRound = loginConcurrently(users);
+
+            // generous bounds: CI machines are slow, but a login stuck behind a connect timeout or a starved pool is not
+            assertThat(percentile(firstRound, 50) < TimeUnit.SECONDS.toNanos(2), is(true));
+            assertThat(percentile(firstRound, 99) < TimeUnit.SECONDS.toNanos(5), is(true));
+            assertThat(percentile(secondRound, 50) < percentile(firstRound, 50), is(true));
+
+            // every bind reuses one of the pooled connections; the health prober keeps one of its own
+            assertThat(LDAP.getConnectionCount() - connectionsBefore <= 8 + 1, is(true));
+            // the second round is answered entirely from the credential cache
+            assertThat(LDAP.getBindCount(), is(bindsAfterFirstRound));
+            final Object hits = APP.getEnvironment().metrics().getGauges()
+                    .get(name(CredentialCachingAuthenticator.class, "hits")).getValue();
+            assertThat((Long) hits >= USERS, is(true));
+        } finally {
+            LDAP.setLatency(Duration.milliseconds(0));
+        }
+    }
+
+    @Test
+    public void cachedLoginsSurviveDirectoryFailures() throws Exception {
+        assertThat(login("alice", "alice-secret"), is(200));
+        LDAP.setFailureRate(1);
+        try {
+            assertThat(login("alice", "alice-secret"), is(200));
+            assertThat(login("bob", "bob-secret"), is(500));
+        } finally {
+            LDAP.setFailureRate(0);
+        }
+        assertThat(login("bob", "bob-secret"), is(200));
+        assertThat(login("bob", "wrong"), is(401));
+    }
+
+    @Test
+    public void healthChecksReportProbeResultsWithoutContactingTheDirectory() throws Exception {
+        final HealthCheckRegistry healthChecks = APP.getEnvironment().healthChecks();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!healthChecks.runHealthCheck("ldap").isHealthy()) {
+            assertThat(System.currentTimeMillis() < deadline, is(true));
+            Thread.sleep(20);
+        }
+        final int connections = LDAP.getConnectionCount();
+        final int searches = LDAP.getSearchCount();
+        for (int i = 0; i < 100; i++) {
+            final HealthCheck.Result result = healthChecks.runHealthCheck("ldap");
+            assertThat(result.isHealthy(), is(true));
+            assertThat(result.getDetails().containsKey(LDAP.getUri().toString()), is(true));
+        }
+        assertThat(LDAP.getConnectionCount(), is(connections));
+        assertThat(LDAP.getSearchCount(), is(searches));
+    }
+
+    @Test
+    public void sessionTokensAreAcceptedWithoutContactingTheDirectory() throws Exception {
+        final HttpResponse<String> basic = send("Basic " + Base64.getEncoder()
+                .encodeToString("alice:alice-secret".getBytes(StandardCharsets.UTF_8)));
+        assertThat(basic.statusCode(), is(200));
+        final String token = basic.headers().firstValue("X-Auth-Token").get();
+
+        final int binds = LDAP.getBindCount();
+        LDAP.setFailureRate(1);
+        try {
+            final HttpResponse<String> bearer = send("Bearer " + token);
+            assertThat(bearer.statusCode(), is(200));
+            assertThat(bearer.body(), is("alice"));
+            assertThat(bearer.headers().firstValue("X-Auth-Token").isPresent(), is(false));
+        } finally {
+            LDAP.setFailureRate(0);
+        }
+        assertThat(LDAP.getBindCount(), is(binds));
+
+        final HttpResponse<String> tampered = send("Bearer " + token.substring(1));
+        assertThat(tampered.statusCode(), is(401));
+        assertThat(tampered.headers().firstValue("WWW-Authenticate").get().startsWith("Basic"), is(true));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void theDeprecatedLdapContextStillChecksTheDirectory() throws Exception {
+        final LdapAuthenticatorBundle<TestConfiguration> bundle = APP.<TestApplication>getApplication().bundle;
+        final LdapCanAuthenticate context = bundle.getLdapContext();
+        assertThat(context.authenticate(new BasicCredentials("anyone", "anything")), is(true));
+        assertThat(bundle.getLdapContext() == context, is(true));
+    }
+
+    private static List<Long> loginConcurrently(List<String> users) throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>();
+            for (String user : users) {
+                futures.add(pool.submit(() -> {
+                    final long start = System.nanoTime();
+                    assertThat(login(user, user + "-secret"), is(200));
+                    return System.nanoTime() - start;
+                }));
+            }
+            final List<Long> latencies = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                latencies.add(future.get(30, TimeUnit.SECONDS));
+            }
+            Collections.sort(latencies);
+            return latencies;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long percentile(List<Long> sortedLatencies, int percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.size()) - 1;
+        return sortedLatencies.get(Math.max(0, index));
+    }
+
+    private static int login(String user, String password) throws Exception {
+        final String token = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + APP.getLocalPort() + "/whoami"))
+                .header("Authorization", "Basic " + token)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static HttpResponse<String> send(String authorization) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + APP.getLocalPort() + "/whoami"))
+                .header("Authorization", authorization)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public static class TestConfiguration extends Configuration {
+        @NotNull
+        @Valid
+        @JsonProperty
+        private LdapConfiguration ldap = new LdapConfiguration();
+
+        public LdapConfiguration getLdap() {
+            return ldap;
+        }
+    }
+
+    public static class TestApplication extends Application<TestConfiguration> {
+        private final LdapAuthenticatorBundle<TestConfiguration> bundle = new LdapAuthenticatorBundle<TestConfiguration>() {
+            @Override
+            public LdapConfiguration getConfiguration(TestConfiguration configuration) {
+                return configuration.getLdap();
+            }
+        };
+
+        @Override
+        public void initialize(Bootstrap<TestConfiguration> bootstrap) {
+            bootstrap.addBundle(bundle);
+        }
+
+        @Override
+        public void run(TestConfiguration configuration, Environment environment) {
+            environment.jersey().register(new WhoAmIResource());
+        }
+    }
+
+    @Path("/whoami")
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class WhoAmIResource {
+        @GET
+        @LdapRolesAllowed("users")
+        public String whoami(@LdapAuth LdapUser user) {
+            return user.getName();
+        }
+    }
+}
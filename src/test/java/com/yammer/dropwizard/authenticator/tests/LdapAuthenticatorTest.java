@@ -1,5 +1,6 @@
 package com.yammer.dropwizard.authenticator.tests;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -7,6 +8,7 @@ import com.yammer.dropwizard.authenticator.LdapAuthenticator;
 import com.yammer.dropwizard.authenticator.LdapConfiguration;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.basic.BasicCredentials;
+import java.util.concurrent.ExecutionException;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -38,4 +40,15 @@ public class LdapAuthenticatorTest {
     public void badServer() throws AuthenticationException {
         assertThat(ldapAuthenticator.authenticate(new BasicCredentials("user", "password")), is(false));
     }
+
+    @Test
+    public void badServerAsync() throws Exception {
+        try {
+            ldapAuthenticator.authenticateAndReturnPermittedGroupsAsync(new BasicCredentials("user", "password")).get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(AuthenticationException.class));
+            return;
+        }
+        throw new AssertionError("expected the future to fail");
+    }
 }
\ No newline at end of file
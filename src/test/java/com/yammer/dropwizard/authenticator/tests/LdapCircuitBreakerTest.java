@@ -0,0 +1,95 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.yammer.dropwizard.authenticator.CircuitBreakerConfiguration;
+import com.yammer.dropwizard.authenticator.LdapCircuitBreaker;
+import io.dropwizard.util.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import org.junit.Test;
+
+public class LdapCircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LdapCircuitBreaker breaker = new LdapCircuitBreaker(new CircuitBreakerConfiguration()
+            .setMinimumCalls(4)
+            .setFailureRateThreshold(0.5)
+            .setWindow(Duration.seconds(10))
+            .setOpenDuration(Duration.seconds(5)), now::get);
+
+    private final LdapCircuitBreaker.Call<String> unreachable = () -> {
+        calls.incrementAndGet();
+        throw new CommunicationException("connection refused");
+    };
+
+    private final LdapCircuitBreaker.Call<String> reachable = () -> {
+        calls.incrementAndGet();
+        return "ok";
+    };
+
+    @Test
+    public void opensOnceTheFailureRateIsReachedAndFailsFast() throws Exception {
+        breaker.execute(reachable);
+        breaker.execute(reachable);
+        attempt(unreachable);
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.CLOSED));
+        attempt(unreachable);
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.OPEN));
+
+        calls.set(0);
+        assertThat(attempt(reachable) instanceof ServiceUnavailableException, is(true));
+        assertThat(calls.get(), is(0));
+    }
+
+    @Test
+    public void rejectionsDoNotCountAsFailures() {
+        for (int i = 0; i < 10; i++) {
+            attempt(() -> {
+                throw new AuthenticationException("invalid credentials");
+            });
+        }
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void failuresOutsideTheWindowAreForgotten() {
+        attempt(unreachable);
+        attempt(unreachable);
+        attempt(unreachable);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        attempt(unreachable);
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void trialCallClosesOrReopensTheBreaker() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            attempt(unreachable);
+        }
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        attempt(unreachable);
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertThat(breaker.execute(reachable), is("ok"));
+        assertThat(breaker.getState(), is(LdapCircuitBreaker.State.CLOSED));
+    }
+
+    private NamingException attempt(LdapCircuitBreaker.Call<String> call) {
+        try {
+            breaker.execute(call);
+            return null;
+        } catch (NamingException e) {
+            return e;
+        }
+    }
+}
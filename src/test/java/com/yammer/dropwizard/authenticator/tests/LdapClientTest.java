@@ -0,0 +1,164 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.yammer.dropwizard.authenticator.GroupResolutionStrategy;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapClientType;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapConnectionPoolConfiguration;
+import com.yammer.dropwizard.authenticator.SearchConnectionConfiguration;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LdapClientTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logsInWithTheUnboundIdClient() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration())) {
+            assertThat(authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret"))
+                    .get().getRoles(), is(ImmutableSet.of("admins", "users")));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "wrong")), is(false));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "")), is(false));
+            assertThat(authenticator.canAuthenticate(), is(true));
+        }
+    }
+
+    @Test
+    public void reusesConnectionsAcrossLogins() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration())) {
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            final int connections = ldap.getConnectionCount();
+            for (int i = 0; i < 5; i++) {
+                assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+            }
+            assertThat(ldap.getConnectionCount(), is(connections));
+        }
+    }
+
+    @Test
+    public void opensAConnectionPerLoginWithoutThePool() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setConnectionPool(new LdapConnectionPoolConfiguration().setEnabled(false)))) {
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            final int connections = ldap.getConnectionCount();
+            for (int i = 0; i < 5; i++) {
+                assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+            }
+            assertThat(ldap.getConnectionCount(), is(connections + 5));
+        }
+    }
+
+    @Test
+    public void looksUpGroupsWithTheUnboundIdClient() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setSearchConnections(new SearchConnectionConfiguration()
+                        .setEnabled(true)
+                        .setBindDn("cn=alice,ou=people,dc=example,dc=com")
+                        .setBindPassword("alice-secret")))) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            assertThat(authenticator.isValidUser("bob", "admins"), is(false));
+            assertThat(authenticator.rolesOf("bob", List.of("admins", "users", "missing")), is(ImmutableSet.of("users")));
+            ldap.getServer().closeAllConnections(false);
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+        }
+    }
+
+    @Test
+    public void readsMemberOfWithTheUnboundIdClient() throws Exception {
+        ldap.getServer().modify("cn=bob,ou=people,dc=example,dc=com", new Modification(ModificationType.ADD, "memberOf",
+                "cn=users,ou=groups,dc=example,dc=com"));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setGroupResolution(GroupResolutionStrategy.MEMBER_OF))) {
+            assertThat(authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("bob", "bob-secret"))
+                    .get().getRoles(), is(ImmutableSet.of("users")));
+        }
+    }
+
+    @Test
+    public void closesConnectionsLeftIdle() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setConnectionPool(new LdapConnectionPoolConfiguration()
+                        .setEnabled(true)
+                        .setIdleTimeout(Duration.milliseconds(100))
+                        .setEvictionInterval(Duration.milliseconds(20))))) {
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            final int connections = ldap.getConnectionCount();
+            Thread.sleep(500);
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+            assertThat(ldap.getConnectionCount(), is(connections + 1));
+        }
+    }
+
+    @Test
+    public void checksTheHostNameOnLdapsCertificates() throws Exception {
+        assertThat(logsInOverLdaps(keyStore("localhost")), is(true));
+        assertThat(logsInOverLdaps(keyStore("ldap.example.com")), is(false));
+    }
+
+    private boolean logsInOverLdaps(File keyStore) throws Exception {
+        final InMemoryLdap ldaps = new InMemoryLdap().setKeyStore(keyStore, "changeit");
+        final String trustStore = System.getProperty("javax.net.ssl.trustStore");
+        ldaps.start();
+        try {
+            // trusted either way, so only the name on the certificate decides
+            System.setProperty("javax.net.ssl.trustStore", keyStore.getPath());
+            System.setProperty("javax.net.ssl.trustStorePassword", "changeit");
+            try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(ldaps))) {
+                return authenticator.canAuthenticate()
+                        && authenticator.authenticate(new BasicCredentials("alice", "alice-secret"));
+            }
+        } finally {
+            if (trustStore == null) {
+                System.clearProperty("javax.net.ssl.trustStore");
+            } else {
+                System.setProperty("javax.net.ssl.trustStore", trustStore);
+            }
+            System.clearProperty("javax.net.ssl.trustStorePassword");
+            ldaps.stop();
+        }
+    }
+
+    /** A PKCS12 key store holding a self-signed certificate for {@code host}. */
+    private File keyStore(String host) throws Exception {
+        final File keyStore = new File(folder.getRoot(), host + ".p12");
+        final Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", host, "-keyalg", "EC", "-dname", "CN=" + host, "-ext", "san=dns:" + host,
+                "-validity", "1", "-storetype", "PKCS12", "-keystore", keyStore.getPath(),
+                "-storepass", "changeit", "-keypass", "changeit")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        assertThat(keytool.waitFor(), is(0));
+        return keyStore;
+    }
+
+    private LdapConfiguration configuration() {
+        return configuration(ldap);
+    }
+
+    private static LdapConfiguration configuration(InMemoryLdap ldap) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setClient(LdapClientType.UNBOUNDID)
+                .setConnectionPool(new LdapConnectionPoolConfiguration().setEnabled(true))
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false));
+    }
+}
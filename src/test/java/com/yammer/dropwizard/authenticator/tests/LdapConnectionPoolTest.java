@@ -0,0 +1,173 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.yammer.dropwizard.authenticator.AutoclosingDirContext;
+import com.yammer.dropwizard.authenticator.LdapConnectionPool;
+import com.yammer.dropwizard.authenticator.LdapConnectionPoolConfiguration;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.naming.Context;
+import javax.naming.LimitExceededException;
+import javax.naming.ServiceUnavailableException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LdapConnectionPoolTest {
+    private static final String ALICE = "cn=alice,ou=people,dc=example,dc=com";
+    private static final String BOB = "cn=bob,ou=people,dc=example,dc=com";
+
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    private LdapConnectionPool pool;
+
+    @After
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reusesReleasedConnections() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration());
+        pool.bind(ALICE, "alice-secret").close();
+        for (int i = 0; i < 5; i++) {
+            pool.bind(BOB, "bob-secret").close();
+        }
+        assertThat(ldap.getConnectionCount(), is(1));
+        assertThat(pool.getSize(), is(1));
+        assertThat(pool.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void waitsAtMostMaxWaitOnceMaxSizeConnectionsAreBorrowed() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration().setMaxSize(2).setMaxWait(Duration.milliseconds(100)));
+        try (AutoclosingDirContext first = pool.bind(ALICE, "alice-secret");
+             AutoclosingDirContext second = pool.bind(BOB, "bob-secret")) {
+            assertThat(pool.getActiveCount(), is(2));
+            final long start = System.nanoTime();
+            try {
+                pool.bind(ALICE, "alice-secret");
+                fail("a third connection was handed out");
+            } catch (LimitExceededException expected) {
+                assertThat(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100), is(true));
+            }
+        }
+        pool.bind(ALICE, "alice-secret").close();
+        assertThat(pool.getSize(), is(2));
+    }
+
+    @Test
+    public void evictsIdleConnectionsAboveMinSize() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration()
+                .setMinSize(1)
+                .setIdleTimeout(Duration.milliseconds(50))
+                .setEvictionInterval(Duration.milliseconds(20)));
+        await(() -> pool.getIdleCount() == 1); // the minimum is opened up front
+        try (AutoclosingDirContext first = pool.bind(ALICE, "alice-secret");
+             AutoclosingDirContext second = pool.bind(BOB, "bob-secret")) {
+            assertThat(pool.getSize() >= 2, is(true));
+        }
+        await(() -> pool.getSize() == 1 && pool.getIdleCount() == 1);
+    }
+
+    @Test
+    public void replacesConnectionsThatFailValidation() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration()
+                .setMinSize(1)
+                .setEvictionInterval(Duration.milliseconds(20)));
+        await(() -> pool.getIdleCount() == 1);
+        ldap.getServer().closeAllConnections(false);
+        await(() -> ldap.getConnectionCount() == 2 && pool.getIdleCount() == 1);
+        pool.bind(ALICE, "alice-secret").close();
+        assertThat(ldap.getConnectionCount(), is(2));
+    }
+
+    @Test
+    public void validatesOnBorrow() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration().setValidateOnBorrow(true).setValidateWhileIdle(false));
+        pool.bind(ALICE, "alice-secret").close();
+        ldap.getServer().closeAllConnections(false);
+        pool.bind(BOB, "bob-secret").close();
+        assertThat(pool.getSize(), is(1));
+    }
+
+    @Test
+    public void neverExceedsMaxSizeWhileIdleConnectionsAreChecked() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration()
+                .setMaxSize(2)
+                .setMaxWait(Duration.seconds(5))
+                .setEvictionInterval(Duration.milliseconds(1)));
+        final AtomicInteger largest = new AtomicInteger();
+        final ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(threads.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        pool.bind(ALICE, "alice-secret").close();
+                        largest.accumulateAndGet(pool.getSize(), Math::max);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertThat(largest.get() <= 2, is(true));
+        assertThat(ldap.getConnectionCount() <= 2, is(true));
+    }
+
+    @Test
+    public void closingDiscardsIdleConnectionsAndRefusesBorrowers() throws Exception {
+        pool = pool(new LdapConnectionPoolConfiguration());
+        final AutoclosingDirContext borrowed = pool.bind(ALICE, "alice-secret");
+        pool.bind(BOB, "bob-secret").close();
+        pool.close();
+        assertThat(pool.getSize(), is(1));
+        borrowed.close();
+        assertThat(pool.getSize(), is(0));
+        assertThat(pool.getIdleCount(), is(0));
+        try {
+            pool.bind(ALICE, "alice-secret");
+            fail("a closed pool handed out a connection");
+        } catch (ServiceUnavailableException expected) {
+            // closed
+        }
+    }
+
+    private LdapConnectionPool pool(LdapConnectionPoolConfiguration configuration) {
+        return new LdapConnectionPool(configuration.setEnabled(true), () -> {
+            final Hashtable<String, String> env = new Hashtable<>();
+            env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+            env.put(Context.PROVIDER_URL, ldap.getUri().toString());
+            env.put("com.sun.jndi.ldap.connect.timeout", "1000");
+            env.put("com.sun.jndi.ldap.read.timeout", "1000");
+            return env;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() < deadline, is(true));
+            Thread.sleep(10);
+        }
+    }
+}
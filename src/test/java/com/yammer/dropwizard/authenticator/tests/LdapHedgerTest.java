@@ -0,0 +1,104 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.yammer.dropwizard.authenticator.HedgingConfiguration;
+import com.yammer.dropwizard.authenticator.LdapHedger;
+import com.yammer.dropwizard.authenticator.LdapServer;
+import com.yammer.dropwizard.authenticator.LdapServerSet;
+import com.yammer.dropwizard.authenticator.ServerSelectionConfiguration;
+import com.yammer.dropwizard.authenticator.ServerSelectionStrategy;
+import io.dropwizard.util.Duration;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.CommunicationException;
+import org.junit.After;
+import org.junit.Test;
+
+public class LdapHedgerTest {
+    private final ServerSelectionConfiguration selection = new ServerSelectionConfiguration();
+    private final LdapServer first = new LdapServer(URI.create("ldap://first"), selection);
+    private final LdapServer second = new LdapServer(URI.create("ldap://second"), selection);
+    private final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(),
+            ServerSelectionStrategy.ROUND_ROBIN);
+    private final CountDownLatch stalled = new CountDownLatch(1);
+    private LdapHedger hedger;
+
+    @After
+    public void release() {
+        stalled.countDown();
+        hedger.close();
+    }
+
+    @Test
+    public void asksAnotherServerWhenTheFirstStalls() throws Exception {
+        hedger = new LdapHedger(new HedgingConfiguration().setEnabled(true).setDelay(Duration.milliseconds(20)));
+        final long start = System.nanoTime();
+        assertThat(hedger.execute(servers, this::firstStalls), is(second));
+        assertThat(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), is(true));
+        assertThat(hedger.getHedgesSent(), is(1L));
+        assertThat(hedger.getHedgesWon(), is(1L));
+    }
+
+    @Test
+    public void stopsHedgingWhenTheBudgetIsSpent() throws Exception {
+        hedger = new LdapHedger(new HedgingConfiguration()
+                .setEnabled(true)
+                .setDelay(Duration.milliseconds(1))
+                .setBudgetPercent(0)
+                .setBudgetBurst(1));
+        final AtomicInteger calls = new AtomicInteger();
+        final LdapServerSet.Operation<LdapServer> slow = server -> {
+            calls.incrementAndGet();
+            sleep(50);
+            return server;
+        };
+        hedger.execute(servers, slow);
+        hedger.execute(servers, slow);
+        hedger.execute(servers, slow);
+        assertThat(hedger.getHedgesSent(), is(1L));
+    }
+
+    @Test
+    public void failsOverWhenTheFirstServerIsUnreachable() throws Exception {
+        hedger = new LdapHedger(new HedgingConfiguration().setEnabled(true).setDelay(Duration.seconds(10)));
+        final LdapServerSet.Operation<LdapServer> firstIsDown = server -> {
+            if (server == first) {
+                throw new CommunicationException("connection refused");
+            }
+            return server;
+        };
+        assertThat(hedger.execute(servers, firstIsDown), is(second));
+        assertThat(hedger.getHedgesSent(), is(0L));
+    }
+
+    @Test
+    public void runsInlineWhenDisabled() throws Exception {
+        hedger = new LdapHedger(new HedgingConfiguration());
+        final Thread caller = Thread.currentThread();
+        assertThat(hedger.execute(servers, server -> Thread.currentThread() == caller), is(true));
+    }
+
+    private LdapServer firstStalls(LdapServer server) {
+        if (server == first) {
+            try {
+                stalled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return server;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
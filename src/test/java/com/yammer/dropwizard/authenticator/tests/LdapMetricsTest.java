@@ -0,0 +1,80 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import io.dropwizard.auth.basic.BasicCredentials;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LdapMetricsTest {
+    private static final String PREFIX = name(LdapAuthenticator.class);
+
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private LdapAuthenticator authenticator;
+
+    @Before
+    public void setup() {
+        authenticator = new LdapAuthenticator(configuration(), registry);
+    }
+
+    @After
+    public void teardown() {
+        authenticator.close();
+    }
+
+    @Test
+    public void recordsOutcomesAndLatencies() throws Exception {
+        assertThat(authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret")).isPresent(), is(true));
+        assertThat(authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "wrong")).isPresent(), is(false));
+        assertThat(authenticator.isValidUser("alice", "users"), is(true));
+        assertThat(authenticator.isValidUser("alice", "users"), is(true));
+
+        assertThat(registry.counter(name(PREFIX, "auth", "success")).getCount(), is(1L));
+        assertThat(registry.counter(name(PREFIX, "auth", "failure")).getCount(), is(1L));
+        assertThat(registry.counter(name(PREFIX, "auth", "error")).getCount(), is(0L));
+        assertThat(registry.timer(name(PREFIX, "bind")).getCount(), is(2L));
+        assertThat(registry.timer(name(PREFIX, "search", "user-groups")).getCount(), is(1L));
+        assertThat(registry.timer(name(PREFIX, "search", "group-members")).getCount(), is(1L));
+        assertThat(registry.getGauges().get(name(PREFIX, "group-cache", "hits")).getValue(), is(1L));
+        assertThat(registry.getGauges().get(name(PREFIX, "group-cache", "misses")).getValue(), is(1L));
+        assertThat(registry.getGauges().get(name(PREFIX, "in-flight")).getValue(), is(0));
+    }
+
+    @Test
+    public void keepsTwoAuthenticatorsOnOneRegistryApart() throws Exception {
+        try (LdapAuthenticator other = new LdapAuthenticator(configuration(), registry, "other-ldap")) {
+            assertThat(other.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+
+            assertThat(registry.counter(name("other-ldap", "auth", "success")).getCount(), is(1L));
+            assertThat(registry.counter(name(PREFIX, "auth", "success")).getCount(), is(0L));
+        }
+        assertThat(registry.getNames().stream().noneMatch(metric -> metric.startsWith("other-ldap.")), is(true));
+    }
+
+    @Test
+    public void refusesAPrefixAnotherAuthenticatorIsUsing() {
+        try (LdapAuthenticator ignored = new LdapAuthenticator(configuration(), registry)) {
+            fail("expected the second authenticator to be refused");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage().contains(PREFIX), is(true));
+        }
+    }
+
+    private LdapConfiguration configuration() {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100"));
+    }
+}
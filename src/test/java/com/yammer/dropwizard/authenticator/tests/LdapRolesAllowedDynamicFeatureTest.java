@@ -0,0 +1,109 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.LdapRolesAllowedDynamicFeature;
+import com.yammer.dropwizard.authenticator.LdapSecurityContext;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.auth.Authorizer;
+import io.dropwizard.auth.LdapRolesAllowed;
+import java.security.Principal;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.SecurityContext;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class LdapRolesAllowedDynamicFeatureTest {
+
+    @LdapRolesAllowed({"feature-admins", "feature-operators"})
+    public void operations() {
+    }
+
+    @LdapRolesAllowed("feature-auditors")
+    public void audit() {
+    }
+
+    @Test
+    public void allowsUsersWithAnyAllowedRole() throws Exception {
+        final ContainerRequestFilter filter = filterFor("operations");
+        filter.filter(bundleRequest(new LdapUser("alice", ImmutableSet.of("users", "feature-operators"))));
+    }
+
+    @Test(expected = ForbiddenException.class)
+    public void rejectsUsersWithoutAnAllowedRole() throws Exception {
+        final ContainerRequestFilter filter = filterFor("operations");
+        filter.filter(bundleRequest(new LdapUser("bob", ImmutableSet.of("users", "feature-auditors"))));
+    }
+
+    @Test
+    public void seesRolesRegisteredAfterTheUserWasFirstChecked() throws Exception {
+        final LdapUser carol = new LdapUser("carol", ImmutableSet.of("feature-admins", "feature-late"));
+        filterFor("operations").filter(bundleRequest(carol));
+
+        @LdapRolesAllowed("feature-late")
+        class Late {
+            @SuppressWarnings("unused")
+            public void late() {
+            }
+        }
+        filterFor(Late.class, "late").filter(bundleRequest(carol));
+    }
+
+    @Test
+    public void checksOtherPrincipalsThroughTheSecurityContext() throws Exception {
+        final ContainerRequestFilter filter = filterFor("audit");
+        final ContainerRequestContext request = request(() -> "dave");
+        when(request.getSecurityContext().isUserInRole("feature-auditors")).thenReturn(true);
+        filter.filter(request);
+        verify(request.getSecurityContext()).isUserInRole("feature-auditors");
+    }
+
+    @Test(expected = ForbiddenException.class)
+    public void honoursACustomAuthorizerForLdapUsers() throws Exception {
+        final Authorizer<LdapUser> noAuditors = (user, role) -> !role.equals("feature-auditors") && user.getRoles().contains(role);
+        final LdapUser erin = new LdapUser("erin", ImmutableSet.of("feature-auditors"));
+        final ContainerRequestContext request = request(erin);
+        when(request.getSecurityContext().isUserInRole(anyString()))
+                .thenAnswer(invocation -> noAuditors.authorize(erin, invocation.getArgument(0)));
+        filterFor("audit").filter(request);
+    }
+
+    private ContainerRequestFilter filterFor(String method) throws Exception {
+        return filterFor(LdapRolesAllowedDynamicFeatureTest.class, method);
+    }
+
+    private static ContainerRequestFilter filterFor(Class<?> resource, String method) throws Exception {
+        final ResourceInfo resourceInfo = mock(ResourceInfo.class);
+        when(resourceInfo.getResourceMethod()).thenReturn(resource.getMethod(method));
+        when(resourceInfo.getResourceClass()).thenAnswer(invocation -> resource);
+        final FeatureContext featureContext = mock(FeatureContext.class);
+        new LdapRolesAllowedDynamicFeature().configure(resourceInfo, featureContext);
+        final ArgumentCaptor<Object> registered = ArgumentCaptor.forClass(Object.class);
+        verify(featureContext).register(registered.capture());
+        return (ContainerRequestFilter) registered.getValue();
+    }
+
+    private static ContainerRequestContext bundleRequest(LdapUser user) {
+        final ContainerRequestContext request = request(user);
+        final SecurityContext authenticated = request.getSecurityContext();
+        when(request.getSecurityContext()).thenReturn(new LdapSecurityContext(user, authenticated));
+        return request;
+    }
+
+    private static ContainerRequestContext request(Principal principal) {
+        final SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getUserPrincipal()).thenReturn(principal);
+        when(securityContext.isUserInRole(anyString())).thenReturn(false);
+        final ContainerRequestContext request = mock(ContainerRequestContext.class);
+        when(request.getSecurityContext()).thenReturn(securityContext);
+        return request;
+    }
+}
@@ -0,0 +1,176 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.yammer.dropwizard.authenticator.LdapServer;
+import com.yammer.dropwizard.authenticator.LdapServerSet;
+import com.yammer.dropwizard.authenticator.ServerSelectionConfiguration;
+import com.yammer.dropwizard.authenticator.ServerSelectionStrategy;
+import io.dropwizard.util.Duration;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import org.junit.Test;
+
+public class LdapServerSetTest {
+    private final ServerSelectionConfiguration selection = new ServerSelectionConfiguration()
+            .setFailureThreshold(2)
+            .setRetryInterval(Duration.minutes(1));
+    private final LdapServer first = new LdapServer(URI.create("ldap://first"), selection);
+    private final LdapServer second = new LdapServer(URI.create("ldap://second"), selection);
+    private final LdapServer replica = new LdapServer(URI.create("ldap://replica"), selection);
+
+    @Test
+    public void roundRobinAlternatesBetweenServers() throws Exception {
+        final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(), ServerSelectionStrategy.ROUND_ROBIN);
+        final List<LdapServer> used = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            used.add(servers.execute(server -> server));
+        }
+        assertThat(used, is(List.of(first, second, first, second)));
+    }
+
+    @Test
+    public void failsOverAndTakesUnreachableServersOutOfRotation() throws Exception {
+        final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(), ServerSelectionStrategy.ROUND_ROBIN);
+        final List<LdapServer> attempted = new ArrayList<>();
+        final LdapServerSet.Operation<LdapServer> firstIsDown = server -> {
+            attempted.add(server);
+            if (server == first) {
+                throw new CommunicationException("connection refused");
+            }
+            return server;
+        };
+        for (int i = 0; i < 4; i++) {
+            assertThat(servers.execute(firstIsDown), is(second));
+        }
+        assertThat(first.isHealthy(), is(false));
+        assertThat(second.isHealthy(), is(true));
+        // the first server is only attempted until it crosses the failure threshold
+        assertThat(attempted.stream().filter(server -> server == first).count(), is(2L));
+    }
+
+    @Test
+    public void rejectionsAreNotTreatedAsServerFailures() {
+        final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(), ServerSelectionStrategy.ROUND_ROBIN);
+        for (int i = 0; i < 4; i++) {
+            try {
+                servers.execute(server -> {
+                    throw new AuthenticationException("invalid credentials");
+                });
+                fail("expected the rejection to propagate");
+            } catch (NamingException e) {
+                assertThat(e instanceof AuthenticationException, is(true));
+            }
+        }
+        assertThat(first.isHealthy(), is(true));
+        assertThat(second.isHealthy(), is(true));
+    }
+
+    @Test
+    public void failsOverOnConnectionErrorsWhateverTheirMessage() throws Exception {
+        final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(), ServerSelectionStrategy.ROUND_ROBIN);
+        final LdapServer used = servers.execute(server -> {
+            if (server == first) {
+                final NamingException refused = new NamingException("Verbindungsaufbau abgelehnt");
+                refused.setRootCause(new ConnectException("Connection refused"));
+                throw refused;
+            }
+            return server;
+        });
+        assertThat(used, is(second));
+    }
+
+    @Test
+    public void fallsBackWhenEveryPreferredServerIsDown() throws Exception {
+        final LdapServerSet servers = new LdapServerSet(List.of(replica), List.of(first), ServerSelectionStrategy.LEAST_OUTSTANDING);
+        final LdapServer used = servers.execute(server -> {
+            if (server == replica) {
+                throw new CommunicationException("connection refused");
+            }
+            return server;
+        });
+        assertThat(used, is(first));
+    }
+
+    @Test
+    public void letsOneOperationProbeAServerDueForRetry() throws Exception {
+        final LdapServer down = new LdapServer(URI.create("ldap://down"), new ServerSelectionConfiguration()
+                .setFailureThreshold(1)
+                .setRetryInterval(Duration.milliseconds(500)));
+        final LdapServerSet servers = new LdapServerSet(List.of(down), List.of(first), ServerSelectionStrategy.ROUND_ROBIN);
+        final AtomicInteger probes = new AtomicInteger();
+        final LdapServerSet.Operation<LdapServer> downIsDown = server -> {
+            if (server == down) {
+                probes.incrementAndGet();
+                sleep(50);
+                throw new CommunicationException("connection refused");
+            }
+            return server;
+        };
+        assertThat(servers.execute(downIsDown), is(first));
+        assertThat(down.isHealthy(), is(false));
+        sleep(600);
+
+        probes.set(0);
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<LdapServer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return servers.execute(downIsDown);
+                }));
+            }
+            start.countDown();
+            for (Future<LdapServer> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS), is(first));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(probes.get(), is(1));
+    }
+
+    @Test
+    public void latencyWeightedPrefersFasterServers() throws Exception {
+        final LdapServerSet servers = new LdapServerSet(List.of(first, second), List.of(), ServerSelectionStrategy.LATENCY_WEIGHTED);
+        for (int i = 0; i < 20; i++) {
+            servers.execute(server -> {
+                if (server == second) {
+                    sleep(5);
+                }
+                return server;
+            });
+        }
+        int firstCount = 0;
+        for (int i = 0; i < 200; i++) {
+            if (servers.execute(server -> server) == first) {
+                firstCount++;
+            }
+        }
+        assertThat(firstCount > 150, is(true));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
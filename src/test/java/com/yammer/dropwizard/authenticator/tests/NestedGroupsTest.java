@@ -0,0 +1,156 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import com.yammer.dropwizard.authenticator.NestedGroupConfiguration;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NestedGroupsTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Before
+    public void nestGroups() throws Exception {
+        // engineering > admins (by DN), everyone > engineering, users (by name), loop-a <> loop-b
+        ldap.getServer().add("dn: cn=engineering,ou=groups,dc=example,dc=com", "objectClass: posixGroup",
+                "cn: engineering", "memberUid: carol", "memberUid: cn=admins,ou=groups,dc=example,dc=com");
+        ldap.getServer().add("dn: cn=everyone,ou=groups,dc=example,dc=com", "objectClass: posixGroup",
+                "cn: everyone", "memberUid: engineering", "memberUid: users");
+        ldap.getServer().add("dn: cn=loop-a,ou=groups,dc=example,dc=com", "objectClass: posixGroup",
+                "cn: loop-a", "memberUid: loop-b", "memberUid: cn=dave,ou=people,dc=example,dc=com");
+        ldap.getServer().add("dn: cn=loop-b,ou=groups,dc=example,dc=com", "objectClass: posixGroup",
+                "cn: loop-b", "memberUid: loop-a", "memberUid: loop-b", "memberUid: erin");
+    }
+
+    @Test
+    public void resolvesTwoGroupsThatContainEachOther() throws Exception {
+        group("ping", "frank", dn("pong"));
+        group("pong", "gina", dn("ping"));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nestedByDn())) {
+            eventually(() -> authenticator.isValidUser("gina", "ping"));
+            assertThat(authenticator.rolesOf("frank", List.of("ping", "pong")), is(ImmutableSet.of("ping", "pong")));
+            assertThat(authenticator.rolesOf("gina", List.of("ping", "pong")), is(ImmutableSet.of("ping", "pong")));
+        }
+    }
+
+    @Test
+    public void resolvesAGroupThatContainsItself() throws Exception {
+        group("selfish", "frank", dn("selfish"));
+        group("everybody", "gina", dn("selfish"));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nestedByDn())) {
+            eventually(() -> authenticator.isValidUser("frank", "everybody"));
+            assertThat(authenticator.isValidUser("frank", "selfish"), is(true));
+            assertThat(authenticator.isValidUser("gina", "selfish"), is(false));
+        }
+    }
+
+    @Test
+    public void resolvesACycleBelowAChainOfGroups() throws Exception {
+        // top > middle > ring-a <> ring-b
+        group("top", "frank", dn("middle"));
+        group("middle", "gina", dn("ring-a"));
+        group("ring-a", "hank", dn("ring-b"));
+        group("ring-b", "ivan", dn("ring-a"));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nestedByDn())) {
+            eventually(() -> authenticator.isValidUser("ivan", "top"));
+            final List<String> groups = List.of("top", "middle", "ring-a", "ring-b");
+            assertThat(authenticator.rolesOf("frank", groups), is(ImmutableSet.of("top")));
+            assertThat(authenticator.rolesOf("gina", groups), is(ImmutableSet.of("top", "middle")));
+            assertThat(authenticator.rolesOf("hank", groups), is(ImmutableSet.copyOf(groups)));
+            assertThat(authenticator.rolesOf("ivan", groups), is(ImmutableSet.copyOf(groups)));
+        }
+    }
+
+    @Test
+    public void treatsBareNamesAsUsersUnlessAskedToMatchGroupNames() throws Exception {
+        // a user who happens to be called "admins"
+        group("operators", "admins");
+        group("staff", dn("operators"));
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nestedByDn())) {
+            eventually(() -> authenticator.isValidUser("admins", "staff"));
+            assertThat(authenticator.isValidUser("alice", "operators"), is(false));
+            assertThat(authenticator.isValidUser("alice", "staff"), is(false));
+        }
+    }
+
+    @Test
+    public void resolvesTransitiveMembershipWithoutSearching() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nested())) {
+            eventually(() -> authenticator.isValidUser("carol", "everyone"));
+            final int searches = ldap.getSearchCount();
+
+            assertThat(authenticator.isValidUser("alice", "engineering"), is(true));
+            assertThat(authenticator.isValidUser("alice", "everyone"), is(true));
+            assertThat(authenticator.isValidUser("bob", "everyone"), is(true));
+            assertThat(authenticator.isValidUser("bob", "engineering"), is(false));
+            assertThat(authenticator.isValidUser("carol", "admins"), is(false));
+            assertThat(authenticator.isValidUser("erin", "loop-a"), is(true));
+            assertThat(authenticator.isValidUser("dave", "loop-b"), is(true));
+            assertThat(ldap.getSearchCount(), is(searches));
+        }
+    }
+
+    @Test
+    public void permitsLoginsThroughNestedRestrictedGroups() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(nested().addRestrictedGroup("everyone"))) {
+            eventually(() -> authenticator.isValidUser("alice", "everyone"));
+            final Optional<LdapUser> alice = authenticator.authenticateAndReturnPermittedGroups(
+                    new BasicCredentials("alice", "alice-secret"));
+            assertThat(alice.isPresent(), is(true));
+            assertThat(alice.get().getRoles().contains("everyone"), is(true));
+            assertThat(alice.get().getRoles().contains("admins"), is(false));
+            assertThat(authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+        }
+    }
+
+    private LdapConfiguration nested() {
+        final LdapConfiguration configuration = nestedByDn();
+        configuration.getNestedGroups().setSubgroupsByName(true);
+        return configuration;
+    }
+
+    private LdapConfiguration nestedByDn() {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false))
+                .setNestedGroups(new NestedGroupConfiguration()
+                        .setEnabled(true)
+                        .setRefreshInterval(Duration.minutes(5)));
+    }
+
+    private void group(String name, String... members) throws Exception {
+        final List<String> entry = new ArrayList<>(List.of("dn: " + dn(name), "objectClass: posixGroup", "cn: " + name));
+        for (String member : members) {
+            entry.add("memberUid: " + member);
+        }
+        ldap.getServer().add(entry.toArray(new String[0]));
+    }
+
+    private static String dn(String group) {
+        return "cn=" + group + ",ou=groups," + InMemoryLdap.BASE_DN;
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapClientType;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import com.yammer.dropwizard.authenticator.SearchConnectionConfiguration;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PagedSearchTest {
+    private static final int TEAMS = 10;
+
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Before
+    public void addAliceToManyGroups() throws Exception {
+        for (int i = 0; i < TEAMS; i++) {
+            ldap.getServer().add("dn: cn=team" + i + ",ou=groups," + InMemoryLdap.BASE_DN, "objectClass: posixGroup",
+                    "cn: team" + i, "gidNumber: " + (2000 + i), "memberUid: alice");
+        }
+    }
+
+    @Test
+    public void readsEveryPageWithJndi() throws Exception {
+        assertReadsEveryPage(LdapClientType.JNDI);
+    }
+
+    @Test
+    public void readsEveryPageWithUnboundId() throws Exception {
+        assertReadsEveryPage(LdapClientType.UNBOUNDID);
+    }
+
+    @Test
+    public void readsEveryPageOverOneConnectionWithUnboundId() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(LdapClientType.UNBOUNDID, 3)
+                .setSearchConnections(new SearchConnectionConfiguration()
+                        .setMinConnections(4)
+                        .setValidationInterval(Duration.milliseconds(20))))) {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (ldap.getOpenConnectionCount() < 4) {
+                assertThat(System.currentTimeMillis() < deadline, is(true));
+                Thread.sleep(20);
+            }
+            final int searches = ldap.getSearchCount();
+            assertThat(rolesOfAlice(authenticator), is(expectedRoles()));
+            final List<Long> connections = ldap.getSearchConnectionIds();
+            assertThat(ImmutableSet.copyOf(connections.subList(searches, connections.size())).size(), is(1));
+        }
+    }
+
+    @Test
+    public void readsEverythingInOneGoWithoutPaging() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(LdapClientType.JNDI, 0))) {
+            final int searches = ldap.getSearchCount();
+            assertThat(rolesOfAlice(authenticator), is(expectedRoles()));
+            assertThat(ldap.getSearchCount() - searches, is(1));
+        }
+    }
+
+    private void assertReadsEveryPage(LdapClientType client) throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration(client, 3))) {
+            final int searches = ldap.getSearchCount();
+            assertThat(rolesOfAlice(authenticator), is(expectedRoles()));
+            // 12 groups, 3 per page
+            assertThat(ldap.getSearchCount() - searches >= 4, is(true));
+        }
+    }
+
+    private static Set<String> rolesOfAlice(LdapAuthenticator authenticator) throws Exception {
+        return authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret"))
+                .map(LdapUser::getRoles)
+                .orElse(ImmutableSet.of());
+    }
+
+    private static Set<String> expectedRoles() {
+        final ImmutableSet.Builder<String> roles = ImmutableSet.<String>builder().add("admins", "users");
+        for (int i = 0; i < TEAMS; i++) {
+            roles.add("team" + i);
+        }
+        return roles.build();
+    }
+
+    private LdapConfiguration configuration(LdapClientType client, int pageSize) {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setClient(client)
+                .setSearchPageSize(pageSize)
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false));
+    }
+}
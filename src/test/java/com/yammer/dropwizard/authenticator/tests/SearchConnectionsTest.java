@@ -0,0 +1,67 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.SearchConnectionConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class SearchConnectionsTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Test
+    public void looksUpGroupsOverOneBoundConnection() {
+        // no minimum, so the pool's maintenance thread cannot open a connection of its own mid-test
+        final LdapConfiguration configuration = configuration();
+        configuration.getSearchConnections().setMinConnections(0);
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration)) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            final int connections = ldap.getConnectionCount();
+            final int binds = ldap.getBindCount();
+            for (int i = 0; i < 5; i++) {
+                assertThat(authenticator.isValidUser("bob", "users"), is(true));
+                assertThat(authenticator.isValidUser("bob", "admins"), is(false));
+            }
+            assertThat(ldap.getConnectionCount(), is(connections));
+            assertThat(ldap.getBindCount(), is(binds));
+        }
+    }
+
+    @Test
+    public void reconnectsAfterTheServerDropsIdleConnections() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration())) {
+            assertThat(authenticator.isValidUser("alice", "admins"), is(true));
+            ldap.getServer().closeAllConnections(false);
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+        }
+    }
+
+    @Test
+    public void usesTheConfiguredGroupAttributes() throws Exception {
+        ldap.getServer().add("dn: teamName=ops,ou=groups,dc=example,dc=com", "objectClass: team",
+                "teamName: ops", "teamMember: carol");
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setGroupClassName("team")
+                .setGroupNameAttribute("teamName")
+                .setGroupMembershipAttribute("teamMember"))) {
+            assertThat(authenticator.isValidUser("carol", "ops"), is(true));
+            assertThat(authenticator.isValidUser("alice", "admins"), is(false));
+            assertThat(ldap.getLastSearchFilter(), is("(&(teamName=admins)(objectClass=team))"));
+        }
+    }
+
+    private LdapConfiguration configuration() {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false))
+                .setSearchConnections(new SearchConnectionConfiguration()
+                        .setEnabled(true)
+                        .setBindDn("cn=alice,ou=people,dc=example,dc=com")
+                        .setBindPassword("alice-secret"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.ReadOnlySearchRequest;
+import com.yammer.dropwizard.authenticator.GroupResolutionStrategy;
+import com.yammer.dropwizard.authenticator.GroupSnapshotConfiguration;
+import com.yammer.dropwizard.authenticator.HealthProbeConfiguration;
+import com.yammer.dropwizard.authenticator.LdapAuthenticator;
+import com.yammer.dropwizard.authenticator.LdapClientType;
+import com.yammer.dropwizard.authenticator.LdapConfiguration;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.util.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class SearchPlansTest {
+    @Rule
+    public final InMemoryLdap ldap = new InMemoryLdap();
+
+    @Test
+    public void asksOnlyForGroupNamesWhenListingAUsersGroups() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration())) {
+            authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("alice", "alice-secret"));
+            assertThat(attributesOf("(&(memberUid=alice)(objectClass=posixGroup))"), is(List.of("cn")));
+        }
+    }
+
+    @Test
+    public void asksForNoAttributesAndOneEntryWhenCheckingRestrictedGroups() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration().addRestrictedGroup("admins"))) {
+            assertThat(authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+            final ReadOnlySearchRequest request = request("(&(memberUid=alice)(|(cn=admins)))");
+            assertThat(request.getAttributeList().stream().noneMatch("memberUid"::equalsIgnoreCase), is(true));
+            assertThat(request.getAttributeList().stream().noneMatch("cn"::equalsIgnoreCase), is(true));
+            assertThat(request.getSizeLimit(), is(1));
+        }
+    }
+
+    @Test
+    public void asksOnlyForMembersWhenLoadingOneGroup() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100")))) {
+            assertThat(authenticator.isValidUser("bob", "users"), is(true));
+            assertThat(attributesOf("(&(cn=users)(objectClass=posixGroup))"), is(List.of("memberUid")));
+        }
+    }
+
+    @Test
+    public void asksForNamesAndMembersWhenLoadingSeveralGroups() {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setCachePolicy(CaffeineSpec.parse("maximumSize=100")))) {
+            assertThat(authenticator.rolesOf("alice", List.of("admins", "users")), is(ImmutableSet.of("admins", "users")));
+            assertThat(attributesOf("(&(objectClass=posixGroup)(|(cn=admins)(cn=users)))"), is(List.of("cn", "memberUid")));
+        }
+    }
+
+    @Test
+    public void asksForNamesAndMembersWhenLoadingTheSnapshot() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .addRestrictedGroup("admins")
+                .setGroupSnapshot(new GroupSnapshotConfiguration().setEnabled(true).setRefreshInterval(Duration.hours(1))))) {
+            await(() -> ldap.getSearchCount() > 0);
+            assertThat(attributesOf("(&(objectClass=posixGroup)(|(cn=admins)))"), is(List.of("cn", "memberUid")));
+        }
+    }
+
+    @Test
+    public void asksOnlyForMemberOfWhenReadingTheUserEntry() throws Exception {
+        try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                .setGroupResolution(GroupResolutionStrategy.MEMBER_OF))) {
+            authenticator.authenticateAndReturnPermittedGroups(new BasicCredentials("bob", "bob-secret"));
+            assertThat(attributesOf("(objectClass=*)"), is(List.of("memberOf")));
+        }
+    }
+
+    @Test
+    public void keepsWhatALoginSearchFoundBeforeTheCountLimit() throws Exception {
+        for (LdapClientType client : LdapClientType.values()) {
+            try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                    .setClient(client)
+                    .setSearchCountLimit(1))) {
+                final LdapUser alice = authenticator.authenticateAndReturnPermittedGroups(
+                        new BasicCredentials("alice", "alice-secret")).get();
+                assertThat(client.name(), alice.getRoles().size(), is(1));
+            }
+        }
+    }
+
+    @Test
+    public void doesNotCacheGroupsCutShortByTheCountLimit() {
+        for (LdapClientType client : LdapClientType.values()) {
+            try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                    .setClient(client)
+                    .setSearchCountLimit(1)
+                    .setCachePolicy(CaffeineSpec.parse("maximumSize=100")))) {
+                authenticator.rolesOf("bob", List.of("admins", "users"));
+                final int searches = ldap.getSearchCount();
+                authenticator.rolesOf("bob", List.of("admins", "users"));
+                assertThat(client.name(), ldap.getSearchCount() - searches > 0, is(true));
+            }
+        }
+    }
+
+    @Test
+    public void doesNotSnapshotGroupsCutShortByTheCountLimit() throws Exception {
+        for (LdapClientType client : LdapClientType.values()) {
+            final int searches = ldap.getSearchCount();
+            try (LdapAuthenticator authenticator = new LdapAuthenticator(configuration()
+                    .setClient(client)
+                    .setSearchCountLimit(1)
+                    .addRestrictedGroup("admins")
+                    .addRestrictedGroup("users")
+                    .setGroupSnapshot(new GroupSnapshotConfiguration().setEnabled(true).setRefreshInterval(Duration.hours(1))))) {
+                await(() -> ldap.getSearchCount() > searches);
+                // a snapshot of whichever group came first would lock out the members of the other
+                assertThat(client.name(), authenticator.authenticate(new BasicCredentials("alice", "alice-secret")), is(true));
+                assertThat(client.name(), authenticator.authenticate(new BasicCredentials("bob", "bob-secret")), is(true));
+            }
+        }
+    }
+
+    private List<String> attributesOf(String filter) {
+        return request(filter).getAttributeList();
+    }
+
+    private ReadOnlySearchRequest request(String filter) {
+        for (ReadOnlySearchRequest request : ldap.getSearchRequests()) {
+            if (request.getFilter().toString().equals(filter)) {
+                return request;
+            }
+        }
+        throw new AssertionError("No search for " + filter + " in " + ldap.getSearchRequests());
+    }
+
+    private LdapConfiguration configuration() {
+        return new LdapConfiguration()
+                .setUri(ldap.getUri())
+                .setHealthProbe(new HealthProbeConfiguration().setEnabled(false));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() < deadline, is(true));
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.yammer.dropwizard.authenticator.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.yammer.dropwizard.authenticator.LdapUser;
+import com.yammer.dropwizard.authenticator.SessionTokenConfiguration;
+import com.yammer.dropwizard.authenticator.SessionTokens;
+import io.dropwizard.util.Duration;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import org.junit.Test;
+
+public class SessionTokensTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final SessionTokenConfiguration configuration = new SessionTokenConfiguration()
+            .setSecret(SECRET)
+            .setTtl(Duration.minutes(5));
+    private final LdapUser alice = new LdapUser("alice", ImmutableSet.of("admins", "users"));
+
+    @Test
+    public void verifiesTheTokensItIssues() {
+        final SessionTokens tokens = new SessionTokens(configuration);
+        final Optional<LdapUser> user = tokens.verify(tokens.issue(alice));
+        assertThat(user.get().getName(), is("alice"));
+        assertThat(user.get().getRoles(), is(ImmutableSet.of("admins", "users")));
+        // another instance sharing the secret accepts it too
+        assertThat(new SessionTokens(configuration).verify(tokens.issue(alice)).isPresent(), is(true));
+    }
+
+    @Test
+    public void rejectsTamperedAndForeignTokens() {
+        final SessionTokens tokens = new SessionTokens(configuration);
+        final String token = tokens.issue(alice);
+        final String forged = new SessionTokens(new SessionTokenConfiguration()).issue(alice);
+        assertThat(tokens.verify(forged).isPresent(), is(false));
+        assertThat(tokens.verify(token.substring(0, token.indexOf('.')) + ".AAAA").isPresent(), is(false));
+        final String mallory = tokens.issue(new LdapUser("mallory", alice.getRoles()));
+        final String signature = token.substring(token.indexOf('.'));
+        assertThat(tokens.verify(mallory.substring(0, mallory.indexOf('.')) + signature).isPresent(), is(false));
+        assertThat(tokens.verify("not a token").isPresent(), is(false));
+    }
+
+    @Test
+    public void rejectsExpiredTokens() {
+        final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        final String token = new SessionTokens(configuration, Clock.fixed(now, ZoneOffset.UTC)).issue(alice);
+        assertThat(new SessionTokens(configuration, Clock.fixed(now.plusSeconds(299), ZoneOffset.UTC))
+                .verify(token).isPresent(), is(true));
+        assertThat(new SessionTokens(configuration, Clock.fixed(now.plusSeconds(300), ZoneOffset.UTC))
+                .verify(token).isPresent(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesShortSecrets() {
+        new SessionTokens(new SessionTokenConfiguration().setSecret("too short"));
+    }
+}